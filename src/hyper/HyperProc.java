@@ -106,6 +106,26 @@ public class HyperProc extends JFrame implements ActionListener {
      RenderedImageFactory iWaveletRIF = new IWaveletRIF();
      RIFRegistry.register(registry, "IWavelet", "ccd-hyper",iWaveletRIF);
 
+     registry.registerDescriptor(new GlobalWaveletDescriptor());     
+     RenderedImageFactory globalWaveletRIF = new GlobalWaveletRIF();
+     RIFRegistry.register(registry, "GlobalWavelet", "ccd-hyper",globalWaveletRIF);
+
+     registry.registerDescriptor(new Wavelet3DDescriptor());     
+     RenderedImageFactory wavelet3DRIF = new Wavelet3DRIF();
+     RIFRegistry.register(registry, "Wavelet3D", "ccd-hyper",wavelet3DRIF);
+
+     registry.registerDescriptor(new KLTDescriptor());     
+     RenderedImageFactory kltRIF = new KLTRIF();
+     RIFRegistry.register(registry, "KLT", "ccd-hyper",kltRIF);
+
+     registry.registerDescriptor(new WaveletQuantizeDescriptor());     
+     RenderedImageFactory waveletQuantizeRIF = new WaveletQuantizeRIF();
+     RIFRegistry.register(registry, "WaveletQuantize", "ccd-hyper",waveletQuantizeRIF);
+
+     registry.registerDescriptor(new DequantizeIWaveletDescriptor());     
+     RenderedImageFactory dequantizeIWaveletRIF = new DequantizeIWaveletRIF();
+     RIFRegistry.register(registry, "DequantizeIWavelet", "ccd-hyper",dequantizeIWaveletRIF);
+
      registry.registerDescriptor(new QuantizationDescriptor());     
      RenderedImageFactory quantizationRIF = new QuantizationRIF();
      RIFRegistry.register(registry, "Quantization", "ccd-hyper",quantizationRIF);
@@ -333,10 +353,11 @@ public class HyperProc extends JFrame implements ActionListener {
        if (stok.hasMoreTokens()) {
          token = stok.nextToken();
 
-	 if (token.equals("shore") || token.equals("haar")) {
+	 if (token.equals("shore") || token.equals("haar") ||
+	     WaveletLifting.isLifting(token)) {
    	   fwtCallback(token);
 	 } else {
-	   log.append(hora()+"<type>=(shore|haar)\n");
+	   log.append(hora()+"<type>=(shore|haar|lshore|lhaar|cdf97|legall53)\n");
 	 }
        } else {
          log.append(hora()+"fwt <type> [source [destination]]\n");
@@ -345,10 +366,11 @@ public class HyperProc extends JFrame implements ActionListener {
        if (stok.hasMoreTokens()) {
          token = stok.nextToken();
 
-	 if (token.equals("shore") || token.equals("haar")) {
+	 if (token.equals("shore") || token.equals("haar") ||
+	     WaveletLifting.isLifting(token)) {
   	   iwtCallback(token);
 	 } else {
-	   log.append(hora()+"<type>=(shore|haar)\n");
+	   log.append(hora()+"<type>=(shore|haar|lshore|lhaar|cdf97|legall53)\n");
 	 }
 
        } else {
@@ -824,13 +846,30 @@ public class HyperProc extends JFrame implements ActionListener {
     // in uniform quantization, level is used as the quantization ratio
     if (kind.equals("uniform")) level=paramDialog.getUniRatio();
 
-    panel.pimg = COps.quantization(panel.pimg,kind,level,coefs);
+    if (kind.equals("lattice") && isFloatWavelet(panel.pimg, level)) {
+       // quantize the coefficients as the wavelet gives them, instead of
+       // reading them back from the float image, with as many threads
+       WaveletOpImage w = (WaveletOpImage)panel.pimg;
+       panel.pimg = COps.waveletQuantize(w.getSourceImage(0),
+           w.getAlgorism(),level,coefs,w.getParallelism());
+    } else {
+       panel.pimg = COps.quantization(panel.pimg,kind,level,coefs);
+    }
     if (showUpdates) panel.updateView();
 
     log.append(hora()+"Quantization: "+kind+"\n");
 
   }
 
+  /** Whether the image is the forward wavelet of a float image, with the
+    * given number of levels. */
+  boolean isFloatWavelet(PlanarImage image, int level) {
+    if (image == null || image.getClass() != WaveletOpImage.class) return false;
+    WaveletOpImage w = (WaveletOpImage)image;
+    return w.getLevel() == level && w.getSourceImage(0).getSampleModel().
+        getDataType() == DataBuffer.TYPE_FLOAT;
+  }
+
   /**
    * Called to do dequantization on the current image.
    * @param kind type of quantization (uniform, sbuniform, lattice)
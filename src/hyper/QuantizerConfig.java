@@ -65,7 +65,7 @@ public class QuantizerConfig {
 		for (int j=0;j<numsubbands;j++) coefs[band].add(null);
 
 		int t=1, width=1, height=1;
-		float scale=1f;
+		float scale=1f, deadZone=1f, offset=0.5f;
 		for (int j=0;j<ns;j++) {
 		    Element subitem = (Element)subbands.item(j);
 
@@ -74,11 +74,21 @@ public class QuantizerConfig {
 		    t = ParamLattice.INTEGER;
 		    if (subitem.getAttribute("type").equals("dual"))
 			t = ParamLattice.DUAL;
+		    else if (subitem.getAttribute("type").equals("deadzone"))
+			t = ParamLattice.DEADZONE;
+		    else if (subitem.getAttribute("type").equals("dn"))
+			t = ParamLattice.DN;
+		    else if (subitem.getAttribute("type").equals("e8"))
+			t = ParamLattice.E8;
 		    width = Integer.parseInt(subitem.getAttribute("width"));
 		    height = Integer.parseInt(subitem.getAttribute("height"));
 		    scale = Float.parseFloat(subitem.getAttribute("scale"));
+		    // dead zone width and reconstruction offset, in steps
+		    deadZone = parseFloat(subitem, "deadzone", 1f);
+		    offset = parseFloat(subitem, "offset", 0.5f);
 
-		    ParamLattice pml = new ParamLattice(t, width, height, scale);
+		    ParamLattice pml = new ParamLattice(t, width, height, scale,
+			deadZone, offset);
 
 		    coefs[band].set(subband, pml);
 		}
@@ -88,7 +98,8 @@ public class QuantizerConfig {
 		// El DTD ya nos dice, ademas, que como minimo hay un "subband"
 		for (int j=0;j<numsubbands;j++) {
 		    if (coefs[band].get(j) == null) {
-			coefs[band].set(j,new ParamLattice(t,width,height,scale));
+			coefs[band].set(j,new ParamLattice(t,width,height,scale,
+			    deadZone,offset));
 		    }
 		}
 		
@@ -101,6 +112,56 @@ public class QuantizerConfig {
     }
 
 
+    /** Constructs a Quantizer Configuration from its parameters, for
+     *  instance the ones given by <code>RateAllocation</code>.
+     *  @param level number of levels in Wavelet Transform
+     *  @param coefs a Vector per band with a ParamLattice per subband
+     *  @see hyper.dsp.RateAllocation
+     */
+    public QuantizerConfig(int level, Vector[] coefs) {
+	this.level = level;
+	this.coefs = coefs;
+    }
+
+    /** Writes this configuration as an XML file, that can be read back
+      * with the constructor.
+      * @param filename path to the XML file
+      */
+    public void save(String filename) throws IOException {
+	PrintWriter out = new PrintWriter(new FileWriter(filename));
+	out.println("<?xml version=\"1.0\"?>");
+	out.println("<!DOCTYPE quantizer SYSTEM \"quantizer.dtd\">");
+	out.println("<quantizer level=\""+level+"\">");
+	for (int k=0;k<coefs.length;k++) {
+	    out.println("  <band num=\""+k+"\">");
+	    for (int j=0;j<coefs[k].size();j++) {
+		ParamLattice pml = (ParamLattice)coefs[k].get(j);
+		out.print("    <subband num=\""+j+"\" width=\""+pml.getWidth()+
+		    "\" height=\""+pml.getHeight()+"\" type=\""+
+		    typeName(pml.getType())+"\" scale=\""+pml.getScale()+"\"");
+		if (pml.getType() == ParamLattice.DEADZONE)
+		    out.print(" deadzone=\""+pml.getDeadZone()+"\" offset=\""+
+			pml.getOffset()+"\"");
+		out.println("/>");
+	    }
+	    out.println("  </band>");
+	}
+	out.println("</quantizer>");
+	out.close();
+	if (out.checkError()) throw new IOException("Error writing "+filename);
+    }
+
+    /** Name of a lattice type in the XML files */
+    protected static String typeName(int type) {
+	switch (type) {
+	case ParamLattice.DUAL: return "dual";
+	case ParamLattice.DEADZONE: return "deadzone";
+	case ParamLattice.DN: return "dn";
+	case ParamLattice.E8: return "e8";
+	}
+	return "int";
+    }
+
     /** Return an array per band, each being a Vector containing
       * ParamLattice objects, the configuration of a Quantizer
       */
@@ -115,6 +176,13 @@ public class QuantizerConfig {
 	return level;
     }
 
+    /** Value of a float attribute, or the given default if it is missing
+      * (older files may have been written for a DTD without it) */
+    protected static float parseFloat(Element e, String name, float def) {
+	String s = e.getAttribute(name);
+	return (s.length() == 0) ? def : Float.parseFloat(s);
+    }
+
     protected void print(String s) {
 	if (debug) System.out.println(s);
     }
@@ -0,0 +1,49 @@
+package hyper.coding;
+
+/** Counts of a set of positions 0..n-1, in a Fenwick (binary indexed)
+  * tree, to find the k-th position of the set (select) in O(log n). <p>
+  * <code>IndexDecoding</code> keeps in it the positions that are not
+  * significant yet, so that the relative indices of the stream, which
+  * count only those, are turned into positions of the image without
+  * scanning it.
+  * @see hyper.coding.IndexDecoding#realIndex
+  * @author David Gavilan
+  */
+public final class FenwickTree {
+
+	/** tree[i] counts the positions of the set in (i - lowbit(i), i] */
+	private final int[] tree;
+	private final int n;
+	private int total;
+
+	/** Creates a set with all the positions 0..n-1 */
+	public FenwickTree(int n) {
+		this.n = n;
+		tree = new int[n+1];
+		for (int i=1;i<=n;i++) tree[i] = i & -i;
+		total = n;
+	}
+
+	/** Number of positions in the set */
+	public int size() { return total; }
+
+	/** Removes a position from the set. It must be in it. */
+	public void remove(int pos) {
+		for (int i=pos+1;i<=n;i+=i & -i) tree[i]--;
+		total--;
+	}
+
+	/** Returns the k-th position of the set (k from 1), or n if the set
+	  * doesn't have k positions */
+	public int select(int k) {
+		if (k < 1 || k > total) return n;
+		int pos = 0;
+		for (int step=Integer.highestOneBit(n);step>0;step>>=1) {
+			if (pos+step <= n && tree[pos+step] < k) {
+				pos += step;
+				k -= tree[pos];
+			}
+		}
+		return pos;
+	}
+}
@@ -13,14 +13,18 @@ import hyper.io.*;
   */ 
 public class IndexCoding{
 
-	/** Set of significant coefficients*/
-	protected Vector SCS;
-	/** Temporary set containing significant coefficients found in a given round */
-	protected Vector TPS;
-	/** Set of Insignificant coefficients */
-	protected Vector ICS;
-	/** The indices (in ICS) of significant coefficients */
-	protected Vector S;
+	/** Set of significant coefficients, the first <code>scsSize</code>.
+	  * The significant coefficients found in a given round (the temporary
+	  * set, TPS) follow them until <code>updateSets</code>. */
+	protected int[] SCS;
+	protected int scsSize;
+	/** Set of Insignificant coefficients, the first <code>icsSize</code> */
+	protected int[] ICS;
+	protected int icsSize;
+	/** The indices (in ICS) of significant coefficients, the first
+	  * <code>sSize</code>, in increasing order */
+	protected int[] S;
+	protected int sSize;
 	/** Threshold */
 	protected int T;
 	/** The coded stream, resulting of 4 different simbols: {0,1,+,-} */
@@ -33,21 +37,25 @@ public class IndexCoding{
 	  * @param qos the output stream	  
 	  */	
 	public IndexCoding(int[] initialSet, QuadOutputStream qos) throws IOException{
-		ICS = new Vector(initialSet.length);
-		SCS = new Vector(initialSet.length);
-		TPS = new Vector(initialSet.length/2);
-		S = new Vector(initialSet.length/2);		
+		allocateSets(initialSet.length);
+		System.arraycopy(initialSet,0,ICS,0,initialSet.length);
+		icsSize = initialSet.length;
 
 		this.qos = qos;
 		
-		for(int i=0;i<initialSet.length;i++){
-			ICS.add(new Integer(initialSet[i]));
-		}
-		
 		T = findThreshold();
 		
 		this.qos.writeUBits(T,8);
 	}
+
+	/** Allocates the sets for n coefficients, all of them to be put in ICS.
+	  * Every coefficient is in one set only, so none of them grows. */
+	protected void allocateSets(int n) {
+		ICS = new int[n];
+		SCS = new int[n];
+		S = new int[n];
+		icsSize = scsSize = sSize = 0;
+	}
 	
 	/** Finds an appropiate initial threshold. By default, 128 (gray).
 	  */	
@@ -66,7 +74,7 @@ public class IndexCoding{
 		while(tt>0){
 			System.out.println("IndexCoding: tt = "+tt);
 			sort(tt);
-			if (S.size()>0) reduce();
+			if (sSize>0) reduce();
 			refinement(tt);
 			updateSets();
 			tt>>=1;
@@ -79,39 +87,36 @@ public class IndexCoding{
 	  * @param tt current threshold
 	  */
 	protected void sort(int tt) throws IOException{		
-		for(int i=0;i<ICS.size();i++){
-			if (Math.abs(((Integer)ICS.get(i)).intValue())>= tt){
-				TPS.add(ICS.get(i));
-				S.add( new Integer(i+1));
+		int tps = scsSize;
+		for(int i=0;i<icsSize;i++){
+			if (Math.abs(ICS[i])>= tt){
+				SCS[tps++] = ICS[i];
+				S[sSize++] = i+1;
 			}
 		}
-		qos.writeUBits(S.size(),32); // numero de elementos q enviamos
+		qos.writeUBits(sSize,32); // numero de elementos q enviamos
 	}
 
 	/** Reduction stage. It outputs the reduced set of S.
 	  */
 	protected void reduce() throws IOException{
-		int idx = ((Integer)S.get(0)).intValue();
-		int val = (((Integer)TPS.get(0)).intValue()>=0)?
-			QuadOutputStream.PLUS:QuadOutputStream.MINUS;
-		qos.writeUQuads(idx,QuadOutputStream.minBits(idx)-1);
-		qos.writeQuad(val);
-		for(int i=1;i<S.size();i++){
-			idx = (((Integer)S.get(i)).intValue())-(((Integer)S.get(i-1)).intValue());
-			val = (((Integer)TPS.get(i)).intValue()>=0)?
+		int prev = 0;
+		for(int i=0;i<sSize;i++){
+			int idx = S[i]-prev;
+			int val = (SCS[scsSize+i]>=0)?
    			QuadOutputStream.PLUS:QuadOutputStream.MINUS;
 			qos.writeUQuads(idx,QuadOutputStream.minBits(idx)-1);
 			qos.writeQuad(val);
-			
+			prev = S[i];
 		}
 	}
 	
 	/** Refinement stage. Outputs finer detail to which interval belong already sent indices.
 	  */
 	protected void refinement(int tt) throws IOException{
-		//showIntVector(SCS);
-		for(int i=0;i<SCS.size();i++){
-			int val = Math.abs(((Integer)SCS.get(i)).intValue());
+		if (tt>=T) return;
+		for(int i=0;i<scsSize;i++){
+			int val = Math.abs(SCS[i]);
 			int high = 2*T;
 			int low = 0;
 			int range = 2*T;
@@ -128,20 +133,24 @@ public class IndexCoding{
 				}
 				range = high - low;
 			}
-			if (tt<T) qos.writeQuad(pp);
+			qos.writeQuad(pp);
 		}
 	}
 	
-	/** Update all sets each step of the coding process */
+	/** Update all sets each step of the coding process: the coefficients
+	  * in S are removed from ICS, keeping the order of the rest, in a
+	  * single pass. */
 	protected void updateSets(){
-		for(int i=S.size()-1;i>=0;i--){
-//			showIntVector(S);
-//			showIntVector(ICS);
-			ICS.remove(((Integer) S.get(i)).intValue()-1);
+		if (sSize>0) {
+			int next = 0, k = S[0]-1;
+			for(int i=k;i<icsSize;i++){
+				if (next<sSize && i==S[next]-1) next++;
+				else ICS[k++] = ICS[i];
+			}
+			icsSize = k;
 		}
-		SCS.addAll(TPS);
-		TPS.removeAllElements();
-		S.removeAllElements();
+		scsSize += sSize;
+		sSize = 0;
 	}
 	
 	/** To show in the console a <code>Vector</code> of <code>Integer</code> values */
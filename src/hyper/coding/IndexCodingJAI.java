@@ -1,6 +1,5 @@
 package hyper.coding;
 
-import java.util.Vector;
 import javax.media.jai.*;
 import javax.media.jai.iterator.*;
 import java.io.*;
@@ -34,10 +33,7 @@ public class IndexCodingJAI extends IndexCoding {
 		//qos.writeUBits(tileHeight,16);
 		qos.writeUBits(bands,8);
 			
-		ICS = new Vector(size);
-		SCS = new Vector(size);
-		TPS = new Vector(size>>1);
-		S = new Vector(size>>1);
+		allocateSets(size*bands);
 		
 		this.qos = qos;
 
@@ -46,7 +42,7 @@ public class IndexCodingJAI extends IndexCoding {
 		for (int band=0;band<bands;band++) {
 			for(int y=0;y<height;y++){
 				for (int x=0;x<width;x++) {
-					ICS.add(new Integer(iter.getSample(x,y,band)));
+					ICS[icsSize++] = iter.getSample(x,y,band);
 				}
 			}
 		}
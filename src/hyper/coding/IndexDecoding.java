@@ -21,6 +21,8 @@ public class IndexDecoding{
 	protected int sum=0;
 	protected int size; // en este caso, = result.length
 	protected BitSet bitSet;	
+	/** Positions not in bitSet, to find them by their relative index */
+	protected FenwickTree free;
 	
 	public IndexDecoding() {}
 	
@@ -29,6 +31,7 @@ public class IndexDecoding{
 		this.size=size;
 		IS = new Vector(size);
 		bitSet = new BitSet(size);
+		free = new FenwickTree(size);
 		this.qis = qis;
 		T = (int)qis.readUBits(8);
 	}
@@ -52,7 +55,6 @@ public class IndexDecoding{
 	 *@return el numero d'elements afegits a IS*/
 	protected int obtainIndex(int tt) throws IOException{		
 	    Vector is = new Vector(); 
-		int[] indexs = {0,0};
 
 		int n = (int)qis.readUBits(32); /* llegim el nombre de quads d'aquest pas */ 
 		int ant = 0;
@@ -68,7 +70,7 @@ public class IndexDecoding{
 			int pos = idx + ant;
 			ant = pos;
 //			System.out.println("idx="+idx+", adding "+pos+ " to \"is\". Added: ");
-			pos = realIndex(pos,indexs); // segun como programemos esta funcion, se hace todo lentisimo
+			pos = realIndex(pos);
 			is.add(new Integer(pos));
 			
 			setValue(pos-1,q,tt);
@@ -131,19 +133,14 @@ public class IndexDecoding{
 */
 
 	/** Finds out which is the real index in the resulting vector of read local index.
-	  * @param elem the relative index
-	  * @param idx a vector to remember last visited indexes/holes
+	  * The positions left in bitSet are counted in a Fenwick tree, so it
+	  * takes O(log size), wherever the index is.
+	  * @param elem the relative index, from 1, among the positions not in
+	  *        bitSet
+	  * @return the position from 1, or size+1 if there are not so many
 	  */
-	protected int realIndex(int elem,int[] idx){
-	 	int i=0;
-	 	for (i=idx[0];i<size;i++) {
-	 		if (!bitSet.get(i)) idx[1]++;
-	 		if (idx[1]==elem) {
-	 			idx[0]=i+1;
-	 			return (i+1);
-	 		}
-	 	}
-	 	return (i+1);
+	protected int realIndex(int elem){
+	 	return free.select(elem)+1;
 	}
 
 /*	
@@ -171,6 +168,7 @@ public class IndexDecoding{
 	protected void updateBitSet(Vector is) {
 		for (int i=0;i<is.size();i++) {
 			int pos = ((Integer)is.get(i)).intValue();
+			if (!bitSet.get(pos-1)) free.remove(pos-1);
 			bitSet.set(pos-1);
 		}
 	}
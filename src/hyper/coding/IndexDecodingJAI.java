@@ -20,6 +20,8 @@ public class IndexDecodingJAI extends IndexDecoding {
 
 	/** Image attributes */
 	private int width, height, bands;
+	/** Decoded samples, band after band, each of them row by row */
+	private short[] data;
 	/** Output Image */
 	private TiledImage outImage;
 
@@ -40,23 +42,30 @@ public class IndexDecodingJAI extends IndexDecoding {
 
 		IS = new Vector(size);
 		bitSet = new BitSet(size);
+		free = new FenwickTree(size);
 		this.qis = qis;
 		T = (int)qis.readUBits(8);
 	}
 
-	/** Decodes an image */	
+	/** Decodes an image. <p>
+	  * Samples are decoded into a flat array, indexed by their position
+	  * in the stream, and the image is only built at the end, on the same
+	  * <code>DataBuffer</code>: each band is a plane of the array.
+	  */	
 	public PlanarImage decodeJAI() throws IOException {
 
+		// --------------------------------------------------- decodificamos
+		data = new short[size];
+		decode(); // ya redefinimos aqui el setValue, asi que todo el proceso es igual
 
 		// ------------------------------------------- construimos la imagen		
-		int tileWidth=width, tileHeight=height;
-		
-		int[] order = new int[bands];
-		for (int i=0;i<bands;i++) order[i]=i;
+		int[] banks = new int[bands];
+		int[] offsets = new int[bands];
+		for (int i=0;i<bands;i++) offsets[i]=i*width*height;
 		ComponentSampleModel csm = new ComponentSampleModel(
-  	      DataBuffer.TYPE_SHORT, tileWidth, tileHeight,
-			tileWidth*bands, bands, order);
+  	      DataBuffer.TYPE_SHORT, width, height, 1, width, banks, offsets);
 
+		int[] order = new int[bands];
 		for (int i=0;i<bands;i++) order[i]=16;
 		ColorSpace cs;
 		switch (bands) {
@@ -73,48 +82,27 @@ public class IndexDecodingJAI extends IndexDecoding {
 		ComponentColorModel ccm = new ComponentColorModel(
         	cs, order,
 			false, false, Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
-		
-		outImage = new TiledImage(0, 0, 
-           width, height, 0, 0, 
-	   	csm, ccm);
-	   	
-		// --------------------------------------------------- decodificamos
-		
-		decode(); // ya redefinimos aqui el setValue, asi que todo el proceso es igual
+
+		// the image shares the buffer of the raster, nothing is copied
+		WritableRaster raster = Raster.createWritableRaster(csm,
+			new DataBufferShort(data, size), new Point(0,0));
+		outImage = new TiledImage(new BufferedImage(ccm, raster, false, null),
+			true);
 							
 		return outImage;
 	}
 	
 	
 	protected void setValue(int pos, int sign, int tt){		
-		int s = (sign==QuadOutputStream.PLUS)?1:-1;
-
-		int b = (int)(pos/(width*height));
-		pos -= b*width*height;
-		int y = (int)(pos / width);
-		int x = pos % width;
-				
-	    outImage.setSample(x,y,b,s*tt);
+		data[pos] = (short)((sign==QuadOutputStream.PLUS)?tt:-tt);
 	}
 	
 	protected void setValue(int pos,int val){
-
-		int b = (int)(pos/(width*height));
-		pos -= b*width*height;
-		int y = (int)(pos / width);
-		int x = pos % width;
-				
-	    outImage.setSample(x,y,b,val);
-
+		data[pos] = (short)val;
 	}
 
 	public int getValue(int pos){
-		int b = (int)(pos/(width*height));
-		pos -= b*width*height;
-		int y = (int)(pos / width);
-		int x = pos % width;
-		
-	    return outImage.getSample(x,y,b);
+		return data[pos];
 	}
 
 	
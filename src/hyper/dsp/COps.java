@@ -26,7 +26,9 @@ public class COps {
 
   /**
     * Applies the wavelet operation to a <b>float</b> image. The result is another
-    * float image.
+    * float image. With "legall53", integer images are transformed directly
+    * into a <b>short</b> image, or an <b>int</b> one for 16 bit images or
+    * when the levels would make the coefficients overflow a short.
     * @param image the input image
     * @param algorism which algorism to apply (Haar, Shore)
     * @param level number of levels of the DWT Transform
@@ -43,9 +45,29 @@ public class COps {
     return JAI.create("Wavelet",pb);    
   }
 
+  /**
+    * Same as <code>wavelet(image, algorism, level)</code>, computing the bands
+    * of every tile in parallel.
+    * @param parallelism number of threads: 1 computes the bands one after
+    *        the other, 0 uses all the processors. The result is the same.
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.ParallelWavelet
+    */
+  public static RenderedOp wavelet(PlanarImage image, 
+         String algorism, int level, int parallelism) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(algorism);
+    pb.add(level);
+    pb.add(parallelism);
+    
+    return JAI.create("Wavelet",pb);    
+  }
+
   /**
     * Applies the inverse wavelet transform to a <b>float</b> image. The result is
-    * another float image.
+    * another float image. With "legall53", short or int coefficients give
+    * back a <b>short</b> or <b>int</b> image.
     * @param image the input image
     * @param algorism which algorism to apply (Haar, Shore)
     * @param level number of levels of the DWT Transform
@@ -62,6 +84,101 @@ public class COps {
     return JAI.create("IWavelet",pb);    
   }
 
+  /**
+    * Same as <code>iwavelet(image, algorism, level)</code>, computing the bands
+    * of every tile in parallel.
+    * @param parallelism number of threads: 1 computes the bands one after
+    *        the other, 0 uses all the processors. The result is the same.
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.ParallelWavelet
+    */
+  public static RenderedOp iwavelet(PlanarImage image, 
+         String algorism, int level, int parallelism) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(algorism);
+    pb.add(level);
+    pb.add(parallelism);
+    
+    return JAI.create("IWavelet",pb);    
+  }
+
+  /**
+    * Applies the wavelet operation to the whole image instead of tile by
+    * tile, so <code>level</code> is not bounded by the tile size. The result
+    * is a float image.
+    * @param image the input image
+    * @param algorism which algorism to apply
+    * @param level number of levels of the DWT Transform
+    * @param inverse whether to apply the inverse transform
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.GlobalWaveletOpImage
+    */
+  public static RenderedOp globalWavelet(PlanarImage image, 
+         String algorism, int level, boolean inverse) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(algorism);
+    pb.add(level);
+    pb.add(new Boolean(inverse));
+    
+    return JAI.create("GlobalWavelet",pb);    
+  }
+
+  /**
+    * Applies the 3D wavelet transform (or its inverse) to a hyperspectral
+    * image: across bands first, then over each band. The result is a float
+    * image, or a short or int one for integer images and "legall53" (int
+    * when the coefficients may not fit in a short).
+    * @param image the input image
+    * @param algorism which algorism to apply
+    * @param level number of levels of the DWT over each band
+    * @param spectralLevel number of levels across bands (the number of bands
+    *        must be a multiple of <code>2^spectralLevel</code>)
+    * @param inverse whether to do the inverse transform
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.Wavelet3DOpImage
+    */
+  public static RenderedOp wavelet3D(PlanarImage image, 
+         String algorism, int level, int spectralLevel, boolean inverse) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(algorism);
+    pb.add(level);
+    pb.add(spectralLevel);
+    pb.add(new Boolean(inverse));
+    
+    return JAI.create("Wavelet3D",pb);    
+  }
+
+  /**
+    * Projects the spectrum of every pixel over the principal components of
+    * the image (or back), to decorrelate bands before the wavelet. The result
+    * is a float image.
+    * <p> Only the stream of <code>LatticeLineCoder</code> carries the basis
+    * in its header, so that <code>LatticeLineDecoder</code> can undo the
+    * projection by itself. The streams of <code>LabellingJAI</code> and
+    * <code>IndexCodingJAI</code> don't: whoever codes a projected image
+    * with them must store the basis apart (<code>SpectralBasis.write</code>)
+    * and apply the inverse KLT after decoding.
+    * @param image the input image
+    * @param basis the components, estimated with
+    *        <code>SpectralBasis.estimate</code>; they must be stored to
+    *        undo the projection
+    * @param inverse whether to do the inverse transform
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.KLTOpImage
+    */
+  public static RenderedOp klt(PlanarImage image, SpectralBasis basis,
+         boolean inverse) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(basis);
+    pb.add(new Boolean(inverse));
+    
+    return JAI.create("KLT",pb);    
+  }
+
   /**
     * Applies the quantization operation to a <b>float</b> image. The result is
     * a <b>short</b> image.
@@ -107,6 +224,79 @@ public class COps {
   }
   
 
+  /**
+    * Applies the wavelet and the lattice quantization to a <b>float</b> image
+    * in one step. The result is a <b>short</b> image, the same as the one of
+    * <code>quantization(wavelet(image, algorism, level), "lattice", level,
+    * coefs)</code>, but no float image of coefficients is stored.
+    * @param image the input image
+    * @param algorism which wavelet to apply (haar, shore, ...)
+    * @param level number of levels of the DWT Transform
+    * @param coefs a vector containing the lattices per subband
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.WaveletQuantizeOpImage
+    */
+  public static RenderedOp waveletQuantize(PlanarImage image,
+         String algorism, int level, Vector[] coefs) {
+    return waveletQuantize(image, algorism, level, coefs, 1);
+  }
+
+  /**
+    * Same as <code>waveletQuantize(image, algorism, level, coefs)</code>,
+    * computing the bands of every tile in parallel.
+    * @param parallelism number of threads: 1 computes the bands one after
+    *        the other, 0 uses all the processors. The result is the same.
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.ParallelWavelet
+    */
+  public static RenderedOp waveletQuantize(PlanarImage image,
+         String algorism, int level, Vector[] coefs, int parallelism) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(algorism);
+    pb.add(level);
+    pb.add(coefs);
+    pb.add(parallelism);
+    
+    return JAI.create("WaveletQuantize",pb);    
+  }
+
+  /**
+    * Dequantizes a <b>short</b> image given by <code>waveletQuantize</code>
+    * and applies the inverse wavelet, in one step. The result is a
+    * <b>float</b> image.
+    * @param image the input image
+    * @param algorism which wavelet was applied (haar, shore, ...)
+    * @param level number of levels of the DWT Transform
+    * @param coefs a vector containing the lattices per subband
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.DequantizeIWaveletOpImage
+    */
+  public static RenderedOp dequantizeIWavelet(PlanarImage image,
+         String algorism, int level, Vector[] coefs) {
+    return dequantizeIWavelet(image, algorism, level, coefs, 1);
+  }
+
+  /**
+    * Same as <code>dequantizeIWavelet(image, algorism, level, coefs)</code>,
+    * computing the bands of every tile in parallel.
+    * @param parallelism number of threads: 1 computes the bands one after
+    *        the other, 0 uses all the processors. The result is the same.
+    * @return the output image as a <b>RenderedOp</b>
+    * @see hyper.dsp.ParallelWavelet
+    */
+  public static RenderedOp dequantizeIWavelet(PlanarImage image,
+         String algorism, int level, Vector[] coefs, int parallelism) {
+    ParameterBlock pb = new ParameterBlock();
+    pb.addSource(image);
+    pb.add(algorism);
+    pb.add(level);
+    pb.add(coefs);
+    pb.add(parallelism);
+    
+    return JAI.create("DequantizeIWavelet",pb);    
+  }
+
   public static RenderedOp lookup(PlanarImage image,) {
     float blurmatrix[] = {1/16f, 1/8f, 1/16f,
                           1/8f,  1/4f, 1/8f,
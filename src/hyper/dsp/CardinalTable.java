@@ -0,0 +1,153 @@
+package hyper.dsp;
+
+import java.math.BigInteger;
+import org.freehep.util.io.BitOutputStream;
+
+/**
+  * Number of points of Z(d) at each L1 distance from the origin, the
+  * <code>cardinalNZ</code> of <code>Labelling</code>, for all the norms up
+  * to <code>Labelling.MAX_NORM</code>.
+  *
+  * <p> The table of a dimension is built the first time it is asked for,
+  * with the recurrence
+  * <code>N(d,m) = N(d-1,m) + N(d-1,m-1) + N(d,m-1)</code>, so all the
+  * dimensions below it are built too. Counts are kept as 128 bit integers,
+  * in two longs: the low word is always right modulo 2^64, as long
+  * arithmetic would give, and the high word is right while the count is
+  * below 2^127, which is far beyond any index we can code.
+  * <p> Tables never change once built, and are shared by all the threads,
+  * so labelling and decoding need neither locks nor BigIntegers.
+  * @see hyper.dsp.Labelling
+  * @author David Gavilan
+  */
+public final class CardinalTable {
+
+  /** Number of norms of each table, 0 to MAX_NORM */
+  public static final int NORMS = Labelling.MAX_NORM+1;
+
+  /** Tables built so far, by dimension. Replaced, never modified, when
+    * it grows. */
+  private static volatile CardinalTable tables[] = new CardinalTable[0];
+
+  private final int dim;
+  private final long low[], high[];
+  /** First norms whose count doesn't fit in a long, or in 128 bits.
+    * NORMS if all of them do. */
+  private final int overLong, over128;
+  /** Bits of the indices in the coded streams, and largest norm whose
+    * indices fit in them */
+  private final int indexBits, maxLabelNorm;
+
+  private CardinalTable(int dim, long low[], long high[]) {
+    this.dim = dim;
+    this.low = low;
+    this.high = high;
+    int m = 0;
+    while (m < NORMS && high[m] == 0 && low[m] >= 0 &&
+           low[m] != Long.MAX_VALUE) m++;
+    overLong = m;
+    while (m < NORMS && high[m] >= 0) m++;
+    over128 = m;
+
+    m = Math.min(Labelling.MAX_NORM, overLong);
+    indexBits = BitOutputStream.minBits((m < overLong) ? low[m] :
+        Labelling.legacyCardinalNZ(dim, m));
+    while (m > 0 && (m >= overLong ||
+           (indexBits < 63 && low[m] > (1L << indexBits)))) m--;
+    maxLabelNorm = m;
+  }
+
+  /** Returns the table of a dimension, building it if needed */
+  public static CardinalTable forDimension(int d) {
+    CardinalTable t[] = tables;
+    if (d < t.length) return t[d];
+    return build(d);
+  }
+
+  /** Builds the tables up to dimension d from the last one built */
+  private static synchronized CardinalTable build(int d) {
+    CardinalTable t[] = tables;
+    if (d < t.length) return t[d];
+    CardinalTable grown[] = new CardinalTable[Math.max(d+1, 2*t.length)];
+    System.arraycopy(t, 0, grown, 0, t.length);
+    for (int k=t.length; k<grown.length; k++) {
+      long low[] = new long[NORMS], high[] = new long[NORMS];
+      low[0] = 1;
+      if (k > 0) {
+        long pl[] = grown[k-1].low, ph[] = grown[k-1].high;
+        for (int m=1; m<NORMS; m++) {
+          // N(k-1,m) + N(k-1,m-1) + N(k,m-1), with carries
+          long l = pl[m], h = ph[m];
+          long s = l + pl[m-1];
+          h = add(h, ph[m-1], carry(l, pl[m-1], s));
+          l = s;
+          s = l + low[m-1];
+          h = add(h, high[m-1], carry(l, low[m-1], s));
+          low[m] = s;
+          high[m] = h;
+        }
+      }
+      grown[k] = new CardinalTable(k, low, high);
+    }
+    tables = grown;
+    return grown[d];
+  }
+
+  /** Adds two high words and a carry. Once past 2^127 the high word is
+    * meaningless, and it is kept negative. */
+  private static long add(long a, long b, long carry) {
+    if (a < 0 || b < 0) return Long.MIN_VALUE;
+    long h = a + b + carry;
+    return (h < 0) ? Long.MIN_VALUE : h;
+  }
+
+  /** Carry out of the unsigned addition <code>s = a + b</code> */
+  static long carry(long a, long b, long s) {
+    return ((a & b) | ((a | b) & ~s)) >>> 63;
+  }
+
+  public int getDimension() { return dim; }
+
+  /** First norm whose count is Long.MAX_VALUE or more (NORMS if none) */
+  public int getOverLong() { return overLong; }
+
+  /** First norm whose count needs more than 127 bits (NORMS if none) */
+  public int getOver128() { return over128; }
+
+  /** Number of bits the indices of this dimension are coded with. It comes
+    * from the count of norm <code>Labelling.maxDistance</code>, that may
+    * not fit in a long, as it was computed before these tables existed. */
+  public int getIndexBits() { return indexBits; }
+
+  /** Largest norm whose indices fit both in a long and in
+    * <code>getIndexBits</code> bits */
+  public int getMaxLabelNorm() { return maxLabelNorm; }
+
+  /** Whether the count of norm m fits in 127 bits */
+  public boolean fits128(int m) { return m < over128; }
+
+  /** Whether the count of norm m is less than Long.MAX_VALUE */
+  public boolean fitsLong(int m) { return m < overLong; }
+
+  /** Count of norm m modulo 2^64, that is, exact if <code>fitsLong</code>.
+    * 0 for negative norms. */
+  public long get(int m) {
+    return (m < 0) ? 0 : low[m];
+  }
+
+  /** Bits 64 to 127 of the count of norm m, negative if it doesn't fit in
+    * 128 bits */
+  public long getHigh(int m) {
+    return (m < 0) ? 0 : high[m];
+  }
+
+  /** Count of norm m as a BigInteger, or null if it doesn't fit in
+    * 128 bits */
+  public BigInteger getBig(int m) {
+    if (m < 0) return BigInteger.ZERO;
+    if (m >= over128) return null;
+    BigInteger lo = BigInteger.valueOf(low[m] >>> 1).shiftLeft(1)
+        .add(BigInteger.valueOf(low[m] & 1));
+    return BigInteger.valueOf(high[m]).shiftLeft(64).add(lo);
+  }
+}
@@ -10,6 +10,8 @@ import java.util.Vector;
 /**
   * OpImage implementation for "Dequantization" operator.
   *
+  * <p> <code>ParamLattice.DEADZONE</code> subbands are reconstructed at the
+  * offset of their <code>ParamLattice</code> inside each bin.
   * @author David Gavilan
   */
 public class DeQuantizationOpImage extends QuantizationOpImage {
@@ -59,7 +61,7 @@ public class DeQuantizationOpImage extends QuantizationOpImage {
       
       this.level = level;
       this.coefs = coefs;
-	  
+      compilePlan();
    }
    
 
@@ -193,11 +195,6 @@ public class DeQuantizationOpImage extends QuantizationOpImage {
 	   int srcScanlineStride, int dstScanlineStride,
 	   int dwidth, int dheight, int band) {
    
-    int subBands = 3*level+1;	   
-    if (coefs == null) iniSBCoefs();
-    else if (coefs[0].size() < subBands) iniSBCoefs();
-    else iniSBCoefs(coefs);   
-
     float val, half;
     int height = dheight >> level;
     int firsty = 0, k=0, lev=0, idx=0;
@@ -213,7 +210,7 @@ public class DeQuantizationOpImage extends QuantizationOpImage {
 	  lev=(il>jl)?il:jl;
 	  k=(il>jl)?0:(il<jl)?1:2;
 	  idx = lev==0?0:3*(lev-1)+k+1;
- 	  val = ((Float)coefs[band].get(idx)).floatValue(); half = val/2f;
+ 	  val = plan.getScale(band, idx); half = val/2f;
 	  for (int i = firstx; i<width; i++) {
 	 
 	   dstData[dstPixelOffset] = srcData[srcPixelOffset]*val;
@@ -235,7 +232,7 @@ public class DeQuantizationOpImage extends QuantizationOpImage {
    }
 
    
-   /** Process just a subband with current Lattice */
+   /** Process just a subband with its lattice */
    protected void subBandLattice(
 	   float srcData[], float dstData[],
            int srcScanlineOffset, int dstScanlineOffset,
@@ -243,42 +240,14 @@ public class DeQuantizationOpImage extends QuantizationOpImage {
 	   int srcScanlineStride, int dstScanlineStride,
 	   int width, int height,
 	   int firstx, int firsty,
-	   ParamLattice pml) {
-
-    int latticeHeight=pml.getHeight(), latticeWidth=pml.getWidth();   
-
-    int sslo = srcScanlineOffset+firstx*srcPixelStride+firsty*srcScanlineStride;
-    int dslo = dstScanlineOffset+firstx*dstPixelStride+firsty*dstScanlineStride;
-    for (int j=0;j<height;j+=latticeHeight) {
-	int spo = sslo, dpo = dslo;
-	for (int i=0;i<width;i+=latticeWidth) {
-	    float[] v = new float[latticeWidth*latticeHeight];
-	    int k=0;
-
-	    for (int lj=0;lj<latticeHeight;lj++) 
-		for (int li=0;li<latticeWidth;li++) {		   
-		    int soff=li*srcPixelStride+lj*srcScanlineStride;
-		    
-		    v[k++]=srcData[spo+soff];
-		}
-
-	    // we apply the lattice dequantization of this subband
-	    float[] res=pml.iapply(v);
-	    
-	    k=0;
-	    for (int lj=0;lj<latticeHeight;lj++) 
-		for (int li=0;li<latticeWidth;li++) {
-		    int doff=li*dstPixelStride+lj*srcScanlineStride;
-		    
-		    dstData[dpo+doff]=res[k++];
-		}
-	    spo += srcPixelStride*latticeWidth;
-	    dpo += dstPixelStride*latticeWidth;
-	}
-	sslo += srcScanlineStride*latticeHeight;
-	dslo += dstScanlineStride*latticeHeight;
-    
-   }
+	   int band, int subband) {
+
+    plan.dequantize(band, subband, srcData, dstData,
+	   srcScanlineOffset+firstx*srcPixelStride+firsty*srcScanlineStride,
+	   dstScanlineOffset+firstx*dstPixelStride+firsty*dstScanlineStride,
+	   srcPixelStride, dstPixelStride,
+	   srcScanlineStride, dstScanlineStride,
+	   width, height);
    }
 
    
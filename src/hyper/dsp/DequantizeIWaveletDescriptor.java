@@ -0,0 +1,103 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+import javax.media.jai.registry.RenderedRegistryMode;
+import javax.media.jai.registry.RenderableRegistryMode;
+import java.util.Vector;
+import javax.media.jai.util.Range;
+
+/**
+  * An <code>OperationDescriptor</code> describing the "DequantizeIWavelet" operation.
+  * <P> The "DequantizeIWavelet" operation dequantizes the subbands of a short
+  * image and does the inverse wavelet transform in one step, giving a float
+  * image. It undoes a "WaveletQuantize".
+  * <p><table border=1>
+  * <caption>Resource List</caption>
+  * <tr><th>Name</th><th>Value</th></tr>
+  * <tr><th>GlobalName</th><td>DequantizeIWavelet</td></tr>
+  * <tr><th>LocalName</th><td>DequantizeIWavelet</td></tr>
+  * <tr><th>Description</th><td>Lattice dequantization and inverse wavelet of an image.</td></tr>
+  * <tr><th>DocURL</th><td>DequantizeIWaveletDescriptor.html</td></tr>
+  * <tr><th>Version</th><td>0.1</td></tr>
+  * <tr><th>arg0Desc</th><td>A String to specify which wavelet algorism to use.</td></tr>
+  * <tr><th>arg1Desc</th><td>Number of levels of the wavelet.</td></tr>
+  * <tr><th>arg2Desc</th><td>An array of Vectors containing the lattice per subband per band.</td></tr>
+  * <tr><th>arg3Desc</th><td>Threads computing the bands (0, all processors).</td></tr>
+  * </table></p>
+  * <p><table border=1>
+  * <caption>Parameter List</caption>
+  * <tr><th>Name</th><th>Class Type</th><th>Default Value</th></tr>
+  * <tr><td>algorism</td><td>java.lang.String</td><td>"shore"</td></tr>
+  * <tr><td>level</td><td>java.lang.Integer</td><td>1</td></tr>
+  * <tr><td>coeficients</td><td>java.util.Vector[]</td><td>null</td></tr>
+  * <tr><td>parallelism</td><td>java.lang.Integer</td><td>1</td></tr>
+  * </table></p>
+  * @see hyper.dsp.DequantizeIWaveletOpImage
+  * @author David Gavilan
+  */
+public class DequantizeIWaveletDescriptor extends OperationDescriptorImpl {
+
+  private static final String[][] resources = {
+     {"GlobalName", "DequantizeIWavelet"},
+     {"LocalName",  "DequantizeIWavelet"},
+     {"Description", "Lattice dequantization and inverse wavelet of an image."},
+     {"DocURL",      "DequantizeIWaveletDescriptor.html"},
+     {"Version",     "0.0"},
+     {"arg0Desc",    "A String to specify which wavelet algorism to use."},
+     {"arg1Desc",    "Number of levels of the wavelet."},
+     {"arg2Desc",    "An array of Vectors containing the lattice per subband per band."},
+     {"arg3Desc",    "Threads computing the bands (0, all processors)."}
+  };
+
+  private static final Class[] paramClasses = {
+      java.lang.String.class, java.lang.Integer.class,
+      java.util.Vector[].class, java.lang.Integer.class };
+  private static final String[] paramNames = {
+      "algorism", "level", "coeficients", "parallelism" };
+  private static final Object[] paramDefaults = {
+      new String("shore"), new Integer(1), null, new Integer(1) };
+  private static final Object[] validParamValues  = {
+      null,
+      new Range(Integer.class, new Integer(1), new Integer(10)),
+      null,
+      new Range(Integer.class, new Integer(0), new Integer(Integer.MAX_VALUE))
+      };
+  private static final Vector algorithms = validAlgorism();
+
+  public DequantizeIWaveletDescriptor() {
+    super(resources, new String[] {RenderedRegistryMode.MODE_NAME,
+          RenderableRegistryMode.MODE_NAME}, 1,
+	  paramNames, paramClasses, paramDefaults, validParamValues);
+  }
+
+  protected boolean validateParameters(String modeName,
+         ParameterBlock args, StringBuffer msg) {
+    if (!super.validateParameters(modeName, args, msg)) {
+       return false;
+    }
+
+    String algo = (String)args.getObjectParameter(0);
+
+    if (!algorithms.contains(algo)) {
+       msg.append(getName() + algo + " - Unknown algorism.");
+       return false;
+    }
+
+    return true;
+  }
+
+  private static Vector validAlgorism() {
+    Vector v = new Vector();
+    v.add("shore");
+    v.add("haar");
+    v.add("lshore");
+    v.add("lhaar");
+    v.add("cdf97");
+    v.add("legall53");
+    return v;
+  }
+
+}
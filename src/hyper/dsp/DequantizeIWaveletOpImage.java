@@ -0,0 +1,112 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import javax.media.jai.*;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+  * OpImage implementation for "DequantizeIWavelet" operator.
+  *
+  * <p> The inverse of "WaveletQuantize": the same as a lattice
+  * "Dequantization" followed by an "IWavelet", but the short values are
+  * dequantized straight into the float destination, where the inverse
+  * wavelet is done in place. There is no float image of coefficients in
+  * between.
+  * @see hyper.dsp.WaveletQuantizeOpImage
+  * @author David Gavilan
+  */
+public class DequantizeIWaveletOpImage extends IWaveletOpImage {
+
+  protected QuantizationPlan plan;
+  /** Tag to access the source as short, not as float like the destination */
+  protected RasterFormatTag srcTag;
+
+  /**
+    * Constructs an OpImage representing a dequantized inverse wavelet.
+    * @param algorism The kind of wavelet.
+    * @param level Times the wavelet was applied on the image.
+    * @param coefs a <code>Vector</code> per band with the
+    *        <code>ParamLattice</code> of each subband
+    * @param parallelism number of threads computing the bands of a tile
+    */
+  public DequantizeIWaveletOpImage(RenderedImage source, ImageLayout layout,
+         Map config, String algorism, int level, Vector[] coefs,
+         int parallelism) {
+     super(DeQuantizationOpImage.setLayoutF(source),source,config,
+         algorism,level,parallelism);
+
+     plan = new QuantizationPlan(coefs,
+         source.getSampleModel().getNumBands(), level);
+     srcTag = RasterAccessor.findCompatibleTags(null, source)[0];
+  }
+
+  /**
+    * Dequantizes and inverts the wavelet of a specified rectangle, one tile
+    * at a time.
+    * @param sources an array of source Rasters, guaranteed to provide all
+    *                necessary source data for computing the output. In this
+    *                case, just one Raster.
+    * @param dest a WritableRaster containing the area to be computed
+    * @param destRect the rectangle within dest to be processed
+    */
+  public void computeRect(Raster sources[], WritableRaster dest,
+          Rectangle destRect) {
+     RasterAccessor dst = new RasterAccessor(dest, destRect,
+        getFormatTags()[1], getColorModel());
+     RasterAccessor src = new RasterAccessor(sources[0],
+        mapDestRect(destRect, 0), srcTag,
+        getSourceImage(0).getColorModel());
+
+     if (src.getDataType() != DataBuffer.TYPE_SHORT) {
+        throw new IllegalArgumentException("Short datatype sources only.");
+     }
+
+     final int width = dst.getWidth();
+     final int height = dst.getHeight();
+     final float dstDataArrays[][] = dst.getFloatDataArrays();
+     final int dstBandOffsets[] = dst.getBandOffsets();
+     final int dstPixelStride = dst.getPixelStride();
+     final int dstScanlineStride = dst.getScanlineStride();
+     final short srcDataArrays[][] = src.getShortDataArrays();
+     final int srcBandOffsets[] = src.getBandOffsets();
+     final int srcPixelStride = src.getPixelStride();
+     final int srcScanlineStride = src.getScanlineStride();
+
+     ParallelWavelet.forEachBand(parallelism, dst.getNumBands(),
+       new ParallelWavelet.BandTask() {
+         public void computeBand(int k) {
+           float dstData[] = dstDataArrays[k];
+           load(srcDataArrays[k], dstData, srcBandOffsets[k],
+               dstBandOffsets[k], srcPixelStride, dstPixelStride,
+               srcScanlineStride, dstScanlineStride, width, height);
+           plan.dequantizeTile(k, dstData, dstBandOffsets[k],
+               dstPixelStride, dstScanlineStride, width, height);
+           inverseBand(dstData, dstBandOffsets[k], dstPixelStride,
+               dstScanlineStride, width, height);
+         }
+       });
+
+     if (dst.isDataCopy()) {
+       dst.clampDataArrays();
+       dst.copyDataToRaster();
+     }
+  }
+
+  /** Copies the quantized values of a band to the destination */
+  private static void load(short srcData[], float dstData[],
+      int srcOffset, int dstOffset, int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride, int width, int height) {
+    for (int j=0; j<height; j++) {
+      int spo = srcOffset, dpo = dstOffset;
+      for (int x=0; x<width; x++) {
+        dstData[dpo] = srcData[spo];
+        spo += srcPixelStride;
+        dpo += dstPixelStride;
+      }
+      srcOffset += srcScanlineStride;
+      dstOffset += dstScanlineStride;
+    }
+  }
+}
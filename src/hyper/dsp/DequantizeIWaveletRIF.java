@@ -0,0 +1,32 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+import java.util.Vector;
+
+/**
+  * Class implementing the RIF interface for the DequantizeIWavelet operator.
+  * An instance of this class should be registered with the OperationRegistry
+  * with operation name "DequantizeIWavelet" and product name "ccd-hyper".
+  */
+public class DequantizeIWaveletRIF implements RenderedImageFactory {
+   public DequantizeIWaveletRIF() {}
+
+   public RenderedImage create(ParameterBlock paramBlock,
+                               RenderingHints renderHints) {
+      RenderedImage source = paramBlock.getRenderedSource(0);
+
+      ImageLayout layout = renderHints == null ? null :
+                  (ImageLayout)renderHints.get(JAI.KEY_IMAGE_LAYOUT);
+
+      String algorism = (String)paramBlock.getObjectParameter(0);
+      int level = paramBlock.getIntParameter(1);
+      Vector[] coefs = (Vector[])paramBlock.getObjectParameter(2);
+      int parallelism = paramBlock.getIntParameter(3);
+
+      return new DequantizeIWaveletOpImage(source, layout, renderHints,
+             algorism, level, coefs, parallelism);
+   }
+}
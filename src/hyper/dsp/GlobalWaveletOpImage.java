@@ -0,0 +1,304 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import javax.media.jai.*;
+import java.util.Map;
+
+/**
+  * OpImage implementation for "GlobalWavelet" operator.
+  *
+  * <p> Unlike <code>WaveletOpImage</code>, which transforms every tile on its
+  * own, this computes the wavelet transform of the whole image, so the
+  * number of levels is only limited by the image size and not by the tile
+  * size. Tiles are still computed on demand: each destination tile lies in
+  * one or several subbands, and for each of them only the window of the
+  * source needed to get those coefficients is transformed.
+  * <p> The window is the region covered by the coefficients, widened with a
+  * padding of <code>half*(2^l-1)</code> samples at each side (being
+  * <code>half</code> the half length of the filter and <code>l</code> the
+  * level of the subband), and aligned to multiples of <code>2^l</code>.
+  * Coefficients near the window borders are wrong, but they lie inside the
+  * padding and are discarded. Where the window reaches the image border,
+  * the symmetric extension of the lifting kernels gives the same result as
+  * the global transform.
+  * <p> The inverse works the same way, collecting from every subband the
+  * coefficients of a padded window around the destination tile.
+  * <P>Algorisms supported are those of <code>WaveletLifting</code>, plus
+  * <code>haar</code> and <code>shore</code>, which give the same
+  * coefficients as <code>lhaar</code> and <code>lshore</code>. The result
+  * is always a float image. The width and height of the image must be
+  * multiples of <code>2^level</code>, and subbands are ordered as explained
+  * in <code>WaveletOpImage</code>, but over the whole image.
+  * @see hyper.dsp.WaveletOpImage
+  * @see hyper.dsp.WaveletLifting
+  * @author David Gavilan
+  */
+public class GlobalWaveletOpImage extends OpImage {
+
+  protected int kind;
+  protected int level;
+  protected boolean inverse;
+  /** Size and origin of the source (and destination) image */
+  protected int width, height, minX, minY;
+
+  /**
+    * Constructs an OpImage representing a global wavelet.
+    * @param algorism The kind of wavelet.
+    * @param level Times to apply the wavelet on image.
+    * @param inverse whether to do the inverse transform
+    */
+  public GlobalWaveletOpImage(RenderedImage source, ImageLayout layout,
+         Map config, String algorism, int level, boolean inverse) {
+     super(vectorize(source), DeQuantizationOpImage.setLayoutF(source),
+         config, false);
+
+     this.kind = getKind(algorism);
+     this.level = level;
+     this.inverse = inverse;
+     width = source.getWidth();
+     height = source.getHeight();
+     minX = source.getMinX();
+     minY = source.getMinY();
+
+     int mask = (1 << level) - 1;
+     if ((width & mask) != 0 || (height & mask) != 0) {
+        throw new IllegalArgumentException("Image size must be a multiple of "+
+            (1 << level)+": "+width+"x"+height);
+     }
+  }
+
+  /** Same as <code>WaveletLifting.getKind</code>, but also maps the
+    * non-lifting haar and shore to their lifting equivalents.
+    */
+  public static int getKind(String algorism) {
+     if (algorism.equals("haar")) return WaveletLifting.HAAR;
+     if (algorism.equals("shore")) return WaveletLifting.SHORE;
+     return WaveletLifting.getKind(algorism);
+  }
+
+  /** Half length of the longest filter of a kind of wavelet, i.e. how many
+    * neighbours at each side a coefficient depends on.
+    */
+  public static int halfLength(int kind) {
+     switch (kind) {
+       case WaveletLifting.CDF97: return 4;
+       case WaveletLifting.LEGALL53: return 2;
+       default: return 1;
+     }
+  }
+
+  /** Source samples needed at each side of the coefficients of a level.
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53
+    * @param level the level of the subband
+    */
+  public static int padding(int kind, int level) {
+     return halfLength(kind) * ((1 << level) - 1);
+  }
+
+  /** Rectangle of a subband, relative to the image origin.
+    * @param l level of the subband, from 1 to <code>level</code>
+    * @param o orientation: 0 for the low band (only at the last level),
+    *          1 horizontal high, 2 vertical high, 3 both high
+    */
+  protected Rectangle subband(int l, int o) {
+     int w = width >> l, h = height >> l;
+     return new Rectangle((o & 1) != 0 ? w : 0, (o & 2) != 0 ? h : 0, w, h);
+  }
+
+  /** Interval of samples [x0,x1) needed to compute the coefficients
+    * [c0,c1) of level <code>l</code>, aligned to <code>2^l</code> and
+    * clipped to [0,size).
+    */
+  protected int[] window(int c0, int c1, int l, int size) {
+     return window(c0 << l, c1 << l, padding(kind, l), l, size);
+  }
+
+  /** Interval of samples [s0,s1) widened with <code>pad</code> samples at
+    * each side, aligned to <code>2^l</code> and clipped to [0,size).
+    */
+  protected static int[] window(int s0, int s1, int pad, int l, int size) {
+     int x0 = Math.max(0, s0 - pad) >> l << l;
+     int x1 = Math.min(size, ((s1 + pad + (1 << l) - 1) >> l) << l);
+     return new int[] {x0, x1};
+  }
+
+  public Rectangle mapDestRect(Rectangle destRect, int sourceIndex) {
+     Rectangle r = new Rectangle(destRect.x-minX, destRect.y-minY,
+         destRect.width, destRect.height);
+     Rectangle result = null;
+     if (inverse) {
+        // coefficients of every subband around the tile
+        int pad = padding(kind, level);
+        int wx[] = window(r.x, r.x+r.width, pad, level, width);
+        int wy[] = window(r.y, r.y+r.height, pad, level, height);
+        for (int l=level; l>0; l--) {
+          for (int o=(l==level)?0:1; o<4; o++) {
+            Rectangle b = subband(l, o);
+            Rectangle c = new Rectangle(b.x+(wx[0]>>l), b.y+(wy[0]>>l),
+                (wx[1]-wx[0])>>l, (wy[1]-wy[0])>>l);
+            result = (result == null) ? c : result.union(c);
+          }
+        }
+     } else {
+        for (int l=level; l>0; l--) {
+          for (int o=(l==level)?0:1; o<4; o++) {
+            Rectangle b = subband(l, o);
+            Rectangle c = r.intersection(b);
+            if (c.isEmpty()) continue;
+            int wx[] = window(c.x-b.x, c.x-b.x+c.width, l, width);
+            int wy[] = window(c.y-b.y, c.y-b.y+c.height, l, height);
+            Rectangle s = new Rectangle(wx[0], wy[0], wx[1]-wx[0], wy[1]-wy[0]);
+            result = (result == null) ? s : result.union(s);
+          }
+        }
+     }
+     if (result == null) return new Rectangle(destRect.x, destRect.y, 0, 0);
+     result.translate(minX, minY);
+     return result;
+  }
+
+  public Rectangle mapSourceRect(Rectangle sourceRect, int sourceIndex) {
+     Rectangle r = new Rectangle(sourceRect.x-minX, sourceRect.y-minY,
+         sourceRect.width, sourceRect.height);
+     Rectangle result = null;
+     for (int l=level; l>0; l--) {
+       for (int o=(l==level)?0:1; o<4; o++) {
+         Rectangle b = subband(l, o);
+         Rectangle d;
+         if (inverse) {
+            // samples reached by the changed coefficients of this subband
+            Rectangle c = r.intersection(b);
+            if (c.isEmpty()) continue;
+            int pad = padding(kind, level) << 1;
+            d = new Rectangle(((c.x-b.x) << l) - pad, ((c.y-b.y) << l) - pad,
+                (c.width << l) + 2*pad, (c.height << l) + 2*pad);
+            d = d.intersection(new Rectangle(0, 0, width, height));
+         } else {
+            // coefficients of this subband depending on the changed samples
+            int pad = padding(kind, l);
+            int cx0 = Math.max(0, (r.x - pad) >> l);
+            int cy0 = Math.max(0, (r.y - pad) >> l);
+            int cx1 = Math.min(b.width, ((r.x + r.width + pad) >> l) + 1);
+            int cy1 = Math.min(b.height, ((r.y + r.height + pad) >> l) + 1);
+            if (cx1 <= cx0 || cy1 <= cy0) continue;
+            d = new Rectangle(b.x+cx0, b.y+cy0, cx1-cx0, cy1-cy0);
+         }
+         result = (result == null) ? d : result.union(d);
+       }
+     }
+     if (result == null) return new Rectangle(sourceRect.x, sourceRect.y, 0, 0);
+     result.translate(minX, minY);
+     return result;
+  }
+
+  /**
+    * Computes a rectangle of the destination. Sources are not cobbled,
+    * every window is fetched from the source image as needed.
+    */
+  protected void computeRect(PlanarImage sources[], WritableRaster dest,
+          Rectangle destRect) {
+     if (inverse) computeInverse(sources[0], dest, destRect);
+     else computeForward(sources[0], dest, destRect);
+  }
+
+  /** Forward transform of the part of each subband inside the rectangle */
+  protected void computeForward(PlanarImage source, WritableRaster dest,
+          Rectangle destRect) {
+     Rectangle r = new Rectangle(destRect.x-minX, destRect.y-minY,
+         destRect.width, destRect.height);
+     int numBands = dest.getNumBands();
+
+     for (int l=level; l>0; l--) {
+       for (int o=(l==level)?0:1; o<4; o++) {
+         Rectangle b = subband(l, o);
+         Rectangle c = r.intersection(b);
+         if (c.isEmpty()) continue;
+
+         // coefficients relative to the subband, and their window
+         int cx = c.x-b.x, cy = c.y-b.y;
+         int wx[] = window(cx, cx+c.width, l, width);
+         int wy[] = window(cy, cy+c.height, l, height);
+         int ww = wx[1]-wx[0], wh = wy[1]-wy[0];
+         Raster src = source.getData(new Rectangle(minX+wx[0], minY+wy[0],
+             ww, wh));
+
+         // where the coefficients are inside the transformed window
+         int off = (cy-(wy[0]>>l))*ww + cx-(wx[0]>>l);
+         if ((o & 1) != 0) off += ww >> l;
+         if ((o & 2) != 0) off += (wh >> l)*ww;
+
+         float win[] = new float[ww*wh];
+         float coefs[] = new float[c.width*c.height];
+         for (int k=0; k<numBands; k++) {
+           src.getSamples(minX+wx[0], minY+wy[0], ww, wh, k, win);
+           WaveletLifting.forward(kind, win, win, 0, 0, 1, 1, ww, ww,
+               ww, wh, l);
+           crop(win, off, ww, coefs, c.width, c.height);
+           dest.setSamples(minX+c.x, minY+c.y, c.width, c.height, k, coefs);
+         }
+       }
+     }
+  }
+
+  /** Inverse transform of a padded window around the rectangle */
+  protected void computeInverse(PlanarImage source, WritableRaster dest,
+          Rectangle destRect) {
+     int dx = destRect.x-minX, dy = destRect.y-minY;
+     int pad = padding(kind, level);
+     int wx[] = window(dx, dx+destRect.width, pad, level, width);
+     int wy[] = window(dy, dy+destRect.height, pad, level, height);
+     int ww = wx[1]-wx[0], wh = wy[1]-wy[0];
+     int numBands = dest.getNumBands();
+
+     // the coefficients of the window, from every subband
+     int nsb = 3*level+1, sb = 0;
+     Raster rasters[] = new Raster[nsb];
+     int offsets[] = new int[nsb];
+     int sizes[] = new int[2*nsb];
+     for (int l=level; l>0; l--) {
+       for (int o=(l==level)?0:1; o<4; o++, sb++) {
+         Rectangle b = subband(l, o);
+         int cw = ww >> l, ch = wh >> l;
+         rasters[sb] = source.getData(new Rectangle(
+             minX+b.x+(wx[0]>>l), minY+b.y+(wy[0]>>l), cw, ch));
+         offsets[sb] = ((o & 2) != 0 ? ch*ww : 0) + ((o & 1) != 0 ? cw : 0);
+         sizes[2*sb] = cw;
+         sizes[2*sb+1] = ch;
+       }
+     }
+
+     float win[] = new float[ww*wh];
+     float samples[] = new float[destRect.width*destRect.height];
+     for (int k=0; k<numBands; k++) {
+       for (sb=0; sb<nsb; sb++) {
+         Raster r = rasters[sb];
+         int cw = sizes[2*sb], ch = sizes[2*sb+1];
+         float coefs[] = r.getSamples(r.getMinX(), r.getMinY(), cw, ch, k,
+             (float[])null);
+         paste(coefs, cw, ch, win, offsets[sb], ww);
+       }
+       WaveletLifting.inverse(kind, win, 0, 1, ww, ww, wh, level);
+       crop(win, (dy-wy[0])*ww + dx-wx[0], ww, samples,
+           destRect.width, destRect.height);
+       dest.setSamples(destRect.x, destRect.y, destRect.width,
+           destRect.height, k, samples);
+     }
+  }
+
+  /** Copies a rectangle of <code>src</code> (with scanline stride
+    * <code>stride</code>) into the packed <code>dst</code>.
+    */
+  private static void crop(float src[], int offset, int stride,
+          float dst[], int width, int height) {
+     for (int j=0, d=0; j<height; j++, offset+=stride, d+=width)
+       System.arraycopy(src, offset, dst, d, width);
+  }
+
+  /** Inverse of <code>crop</code> */
+  private static void paste(float src[], int width, int height,
+          float dst[], int offset, int stride) {
+     for (int j=0, s=0; j<height; j++, offset+=stride, s+=width)
+       System.arraycopy(src, s, dst, offset, width);
+  }
+}
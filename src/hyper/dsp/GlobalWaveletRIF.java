@@ -0,0 +1,31 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+
+/**
+  * Class implementing the RIF interface for the GlobalWavelet operator.
+  * An instance of this class should be registered with the OperationRegistry
+  * with operation name "GlobalWavelet" and product name "ccd-hyper".
+  */
+public class GlobalWaveletRIF implements RenderedImageFactory {
+   public GlobalWaveletRIF() {}
+   
+   public RenderedImage create(ParameterBlock paramBlock,
+                               RenderingHints renderHints) {
+      RenderedImage source = paramBlock.getRenderedSource(0);
+      
+      ImageLayout layout = renderHints == null ? null : 
+                  (ImageLayout)renderHints.get(JAI.KEY_IMAGE_LAYOUT);
+      
+      String algorism = (String)paramBlock.getObjectParameter(0);
+      int level = paramBlock.getIntParameter(1);
+      boolean inverse =
+          ((Boolean)paramBlock.getObjectParameter(2)).booleanValue();
+		  
+      return new GlobalWaveletOpImage(source, layout, renderHints,
+             algorism, level, inverse);
+   }
+}
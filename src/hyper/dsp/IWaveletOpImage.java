@@ -13,8 +13,15 @@ import java.util.Map;
   * <p><UL>
   *    <LI>shore
   *    <LI>haar
+  *    <LI>lshore
+  *    <LI>lhaar
+  *    <LI>cdf97
+  *    <LI>legall53
   *    </UL></P>
   * <P>You must also specify how many levels shall be calculated.  
+  * <P>Short or int coefficients given by the integer legall53 transform
+  *    are inverted without going through float, giving back a short or an
+  *    int image respectively.
   * @see hyper.dsp.WaveletOpImage
   * @author David Gavilan
   */
@@ -22,7 +29,24 @@ public class IWaveletOpImage extends WaveletOpImage {
 
   public IWaveletOpImage(RenderedImage source, ImageLayout layout,
          Map config, String algorythm, int level) {
-     super(source,layout,config,algorythm,level);
+     this(source,layout,config,algorythm,level,1);
+  }
+
+  /** @param parallelism number of threads computing the bands of a tile
+    *        (1 for one after the other, 0 for one per processor)
+    */
+  public IWaveletOpImage(RenderedImage source, ImageLayout layout,
+         Map config, String algorythm, int level, int parallelism) {
+     super(inverseLayout(source,layout,algorythm),source,config,algorythm,
+         level,parallelism);
+  }
+
+  /** Constructs an OpImage whose destination has the given layout,
+    * whatever the source (see <code>WaveletOpImage</code>).
+    */
+  protected IWaveletOpImage(ImageLayout destLayout, RenderedImage source,
+         Map config, String algorythm, int level, int parallelism) {
+     super(destLayout,source,config,algorythm,level,parallelism);
   }
 
   public void computeRect(Raster sources[], WritableRaster dest,
@@ -36,6 +60,12 @@ public class IWaveletOpImage extends WaveletOpImage {
      RasterAccessor dst = new RasterAccessor(dest, destRect, 
         formatTags[1], getColorModel());
 
+     // integer coefficients of a reversible transform
+     if (isIntegerMode(getSourceImage(0), algorism)) {
+        computeRectInt(sources, dest, destRect, dst);
+        return;
+     }
+
      // the resulting image will be float (more accuracy before
      // the quantization process)
      if (dst.getDataType() != DataBuffer.TYPE_FLOAT) {
@@ -76,10 +106,44 @@ public class IWaveletOpImage extends WaveletOpImage {
 	 srcScanlineStride, dstScanlineStride, 
 	 dwidth, dheight, dnumBands);
 
-     for (int k=0;k<dnumBands;k++) {
-       float dstData[] = dstDataArrays[k];
+     // bands are independent, so they may be computed in parallel
+     final float fdstDataArrays[][] = dstDataArrays;
+     final int fdstBandOffsets[] = dstBandOffsets;
+     final int fdstPixelStride = dstPixelStride;
+     final int fdstScanlineStride = dstScanlineStride;
+     final int fdwidth = dwidth, fdheight = dheight;
+     ParallelWavelet.forEachBand(parallelism, dnumBands,
+       new ParallelWavelet.BandTask() {
+         public void computeBand(int k) {
+           inverseBand(fdstDataArrays[k], fdstBandOffsets[k],
+               fdstPixelStride, fdstScanlineStride, fdwidth, fdheight);
+         }
+       });
+     
+     if (dst.isDataCopy()) {
+       dst.clampDataArrays();
+       dst.copyDataToRaster();
+     }
+  }
 
-       int dstScanlineOffset = dstBandOffsets[k];
+  /** Inverse transform of a band of a tile, in place.
+    * @param dstData[] the coefficients, where the image is stored
+    * @param dstScanlineOffset the scan-line offset where the band starts
+    * @param dstPixelStride the distance between consecutive pixels
+    * @param dstScanlineStride the distance between two scanlines
+    * @param dwidth width of the tile
+    * @param dheight height of the tile
+    */
+  protected void inverseBand(float dstData[], int dstScanlineOffset,
+      int dstPixelStride, int dstScanlineStride, int dwidth, int dheight) {
+
+       // lifting kernels work in place over the copied coefficients
+       int lifting = WaveletLifting.getKind(algorism);
+       if (lifting != WaveletLifting.UNKNOWN) {
+          WaveletLifting.inverse(lifting, dstData, dstScanlineOffset,
+              dstPixelStride, dstScanlineStride, dwidth, dheight, level);
+          return;
+       }
        
        int rangex = dwidth >> (level-1);
        int rangey = dheight >> (level-1);       
@@ -101,10 +165,42 @@ public class IWaveletOpImage extends WaveletOpImage {
  	  rangey <<= 1;
 	   ssls=rangex;
        }		    
-       
-     }
-     
-     
+  }
+
+  /** Integer-to-integer version of <code>computeRect</code>. */
+  private void computeRectInt(Raster sources[], WritableRaster dest,
+          Rectangle destRect, RasterAccessor dst) {
+
+     RasterAccessor src = new RasterAccessor(sources[0],
+        mapDestRect(destRect, 0), getFormatTags()[0],
+        getSourceImage(0).getColorModel());
+
+     boolean shorts = dst.getDataType() == DataBuffer.TYPE_SHORT;
+     final Object dstDataArrays[] = shorts ?
+        (Object[])dst.getShortDataArrays() : (Object[])dst.getIntDataArrays();
+     final Object srcDataArrays[] =
+        (src.getDataType() == DataBuffer.TYPE_SHORT) ?
+        (Object[])src.getShortDataArrays() : (Object[])src.getIntDataArrays();
+     final int dstBandOffsets[] = dst.getBandOffsets();
+     final int srcBandOffsets[] = src.getBandOffsets();
+     final int dstPixelStride = dst.getPixelStride();
+     final int dstScanlineStride = dst.getScanlineStride();
+     final RasterAccessor fsrc = src, fdst = dst;
+
+     ParallelWavelet.forEachBand(parallelism, dst.getNumBands(),
+       new ParallelWavelet.BandTask() {
+         public void computeBand(int k) {
+           WaveletLifting.copyInt(srcDataArrays[k], dstDataArrays[k],
+               srcBandOffsets[k], dstBandOffsets[k],
+               fsrc.getPixelStride(), dstPixelStride,
+               fsrc.getScanlineStride(), dstScanlineStride,
+               fdst.getWidth(), fdst.getHeight());
+           WaveletLifting.inverseInt(dstDataArrays[k], dstBandOffsets[k],
+               dstPixelStride, dstScanlineStride,
+               fdst.getWidth(), fdst.getHeight(), level);
+         }
+       });
+
      if (dst.isDataCopy()) {
        dst.clampDataArrays();
        dst.copyDataToRaster();
@@ -161,23 +257,24 @@ public class IWaveletOpImage extends WaveletOpImage {
      int migSalt = halfy * srcScanlineStride;
      int sslo = srcScanlineOffset;
      
-     // apply 1D Haar vertically
-     for (int i = 0; i<sizex;i++) {
+     // apply 1D Haar vertically. Source and destination are different
+     // buffers, so we can sweep all the columns at once, row by row,
+     // instead of walking one column at a time
+     for (int j = 0; j<halfy;j++) {
 	 	int dstPixelOffset = dslo;
 	 	int srcPixelOffset = sslo;
-	 
-	 	float[] vline=cropBuffer(srcData, srcScanlineOffset,
-	         srcPixelStride, srcScanlineStride,
-		 	srcPixelOffset, 1, sizey);
-	 	for (int j = 0; j<sizey; j+=2) {
-		   dstData[dstPixelOffset] = vline[j>>1]+vline[(j>>1)+halfy]/2f;
-		   dstData[dstPixelOffset+dstScanlineStride] =
-		       vline[j>>1]-vline[(j>>1)+halfy]/2f;
-
-		   dstPixelOffset += dstScanlineStride<<1;
+
+	 	for (int i = 0; i<sizex; i++) {
+		   float l = srcData[srcPixelOffset];
+		   float h = srcData[srcPixelOffset+migSalt];
+		   dstData[dstPixelOffset] = l+h/2f;
+		   dstData[dstPixelOffset+dstScanlineStride] = l-h/2f;
+
+		   srcPixelOffset += srcPixelStride;
+		   dstPixelOffset += dstPixelStride;
 		 }
-		 dslo +=dstPixelStride;
-		 sslo +=srcPixelStride;
+		 sslo +=srcScanlineStride;
+		 dslo +=dstScanlineStride<<1;
      }
      
      // apply 1D Haar horizontally
@@ -22,9 +22,10 @@ public class IWaveletRIF implements RenderedImageFactory {
       
       String algorism = (String)paramBlock.getObjectParameter(0);
       int level = paramBlock.getIntParameter(1);
+      int parallelism = paramBlock.getIntParameter(2);
 		  
       return new IWaveletOpImage(source, layout, renderHints,
-             algorism, level);
+             algorism, level, parallelism);
    }
 
 }
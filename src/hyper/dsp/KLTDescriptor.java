@@ -0,0 +1,87 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+import javax.media.jai.registry.RenderedRegistryMode;
+import javax.media.jai.registry.RenderableRegistryMode;
+import javax.media.jai.util.Range;
+
+/**
+  * An <code>OperationDescriptor</code> describing the "KLT" operation.
+  * <P> The "KLT" operation projects the spectrum of each pixel over the
+  * principal components of the image (or back), obtaining as a result a
+  * float image whose first bands hold most of the energy. If no basis is
+  * given, it is estimated from the source.
+  * <p><table border=1>
+  * <caption>Resource List</caption>
+  * <tr><th>Name</th><th>Value</th></tr>
+  * <tr><th>GlobalName</th><td>KLT</td></tr>
+  * <tr><th>LocalName</th><td>KLT</td></tr>
+  * <tr><th>Description</th><td>Karhunen-Loeve Transformation</td></tr>
+  * <tr><th>DocURL</th><td>KLTDescriptor.html</td></tr>
+  * <tr><th>Version</th><td>0.1</td></tr>
+  * <tr><th>arg0Desc</th><td>The SpectralBasis, null to estimate it.</td></tr>
+  * <tr><th>arg1Desc</th><td>Whether to do the inverse transform.</td></tr>
+  * <tr><th>arg2Desc</th><td>Threads estimating the basis (0, all processors).</td></tr>
+  * </table></p>
+  * <p><table border=1>
+  * <caption>Parameter List</caption>
+  * <tr><th>Name</th><th>Class Type</th><th>Default Value</th></tr>
+  * <tr><td>basis</td><td>hyper.dsp.SpectralBasis</td><td>null</td></tr>
+  * <tr><td>inverse</td><td>java.lang.Boolean</td><td>false</td></tr> 
+  * <tr><td>parallelism</td><td>java.lang.Integer</td><td>1</td></tr> 
+  * </table></p>  
+  * @see hyper.dsp.KLTOpImage
+  * @author David Gavilan
+  */
+public class KLTDescriptor extends OperationDescriptorImpl {
+
+  private static final String[][] resources = {
+     {"GlobalName", "KLT"},
+     {"LocalName",  "KLT"},
+     {"Description", "Projects the bands over their principal components."},
+     {"DocURL",      "KLTDescriptor.html"},
+     {"Version",     "0.0"},
+     {"arg0Desc",    "The SpectralBasis, null to estimate it."},
+     {"arg1Desc",    "Whether to do the inverse transform."},
+     {"arg2Desc",    "Threads estimating the basis (0, all processors)."}
+  };
+  
+  private static final Class[] paramClasses = {
+      hyper.dsp.SpectralBasis.class, java.lang.Boolean.class,
+      java.lang.Integer.class };
+  private static final String[] paramNames = {
+      "basis", "inverse", "parallelism" };
+  private static final Object[] paramDefaults = {
+      null, Boolean.FALSE, new Integer(1) };
+  private static final Object[] validParamValues  = {
+      null,
+      null,
+      new Range(Integer.class, new Integer(0), new Integer(Integer.MAX_VALUE))
+      };
+  
+  public KLTDescriptor() {
+    super(resources, new String[] {RenderedRegistryMode.MODE_NAME,
+          RenderableRegistryMode.MODE_NAME}, 1,
+	  paramNames, paramClasses, paramDefaults, validParamValues);
+  }
+  
+  protected boolean validateParameters(String modeName,
+         ParameterBlock args, StringBuffer msg) {
+    if (!super.validateParameters(modeName, args, msg)) {
+       return false;
+    }
+    
+    boolean inverse = ((Boolean)args.getObjectParameter(1)).booleanValue();
+    
+    if (inverse && args.getObjectParameter(0) == null) {
+       msg.append(getName() + " - The inverse needs the basis.");
+       return false;
+    }
+    
+    return true;
+  }
+    
+}
@@ -0,0 +1,104 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import javax.media.jai.*;
+import java.util.Map;
+
+/**
+  * OpImage implementation for "KLT" operator.
+  *
+  * <p> Projects the spectrum of every pixel over the principal components of
+  * the image (the Karhunen-Loeve Transform), or back. When bands are strongly
+  * correlated, most of the energy ends up in the first few bands of the
+  * result, so the wavelet and the quantizer applied afterwards find far
+  * fewer significant coefficients in the rest.
+  * <P>The result is a float image with as many bands as the source. Its
+  * samples are centered around zero, since the mean is subtracted.
+  * <P>The basis is given by a <code>SpectralBasis</code>, usually estimated
+  * from the source itself, and must be stored with the compressed image to
+  * undo the projection. <code>LatticeLineCoder</code> writes it in its
+  * header; the streams of <code>LabellingJAI</code> and
+  * <code>IndexCodingJAI</code> have no room for it, so with them it must be
+  * stored apart.
+  * @see hyper.dsp.SpectralBasis
+  * @author David Gavilan
+  */
+public class KLTOpImage extends PointOpImage {
+
+  protected SpectralBasis basis;
+  protected boolean inverse;
+
+  /**
+    * Constructs an OpImage representing a KLT.
+    * @param basis the principal components of the (original) image
+    * @param inverse Whether to do the inverse transform.
+    */
+  public KLTOpImage(RenderedImage source, ImageLayout layout,
+         Map config, SpectralBasis basis, boolean inverse) {
+     super(source,DeQuantizationOpImage.setLayoutF(source),config,true);
+
+     int bands = source.getSampleModel().getNumBands();
+     if (bands != basis.getNumBands()) {
+        throw new IllegalArgumentException("The basis is for "+
+            basis.getNumBands()+" bands, not "+bands);
+     }
+     this.basis = basis;
+     this.inverse = inverse;
+  }
+
+  /**
+    * Projects the pixels of a specified rectangle.
+    * @param sources an array of source Rasters, guaranteed to provide all
+    *                necessary source data for computing the output. In this
+    *                case, just one Raster.
+    * @param dest a WritableRaster containing the area to be computed
+    * @param destRect the rectangle within dest to be processed
+    */
+  public void computeRect(Raster sources[], WritableRaster dest,
+          Rectangle destRect) {
+     RasterFormatTag[] formatTags = getFormatTags();
+
+     // the accessors are float, whatever the source
+     RasterAccessor dst = new RasterAccessor(dest, destRect,
+        formatTags[1], getColorModel());
+     RasterAccessor src = new RasterAccessor(sources[0],
+        mapDestRect(destRect, 0), formatTags[0],
+        getSourceImage(0).getColorModel());
+
+     int dwidth = dst.getWidth();
+     int dheight = dst.getHeight();
+     int bands = dst.getNumBands();
+
+     float dstDataArrays[][] = dst.getFloatDataArrays();
+     int dstBandOffsets[] = dst.getBandOffsets();
+     int dstPixelStride = dst.getPixelStride();
+     int dstScanlineStride = dst.getScanlineStride();
+
+     float srcDataArrays[][] = src.getFloatDataArrays();
+     int srcBandOffsets[] = src.getBandOffsets();
+     int srcPixelStride = src.getPixelStride();
+     int srcScanlineStride = src.getScanlineStride();
+
+     float x[] = new float[bands], y[] = new float[bands];
+     for (int j=0; j<dheight; j++) {
+       int srcPixelOffset = j*srcScanlineStride;
+       int dstPixelOffset = j*dstScanlineStride;
+       for (int i=0; i<dwidth; i++) {
+         for (int b=0; b<bands; b++)
+           x[b] = srcDataArrays[b][srcBandOffsets[b]+srcPixelOffset];
+         if (inverse) basis.inverse(x, y);
+         else basis.forward(x, y);
+         for (int b=0; b<bands; b++)
+           dstDataArrays[b][dstBandOffsets[b]+dstPixelOffset] = y[b];
+         srcPixelOffset += srcPixelStride;
+         dstPixelOffset += dstPixelStride;
+       }
+     }
+
+     if (dst.isDataCopy()) {
+       dst.clampDataArrays();
+       dst.copyDataToRaster();
+     }
+  }
+}
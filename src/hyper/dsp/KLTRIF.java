@@ -0,0 +1,31 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+
+/**
+  * Class implementing the RIF interface for the KLT operator.
+  * An instance of this class should be registered with the OperationRegistry
+  * with operation name "KLT" and product name "ccd-hyper".
+  */
+public class KLTRIF implements RenderedImageFactory {
+   public KLTRIF() {}
+   
+   public RenderedImage create(ParameterBlock paramBlock,
+                               RenderingHints renderHints) {
+      RenderedImage source = paramBlock.getRenderedSource(0);
+      
+      ImageLayout layout = renderHints == null ? null : 
+                  (ImageLayout)renderHints.get(JAI.KEY_IMAGE_LAYOUT);
+      
+      SpectralBasis basis = (SpectralBasis)paramBlock.getObjectParameter(0);
+      boolean inverse =
+          ((Boolean)paramBlock.getObjectParameter(1)).booleanValue();
+      int parallelism = paramBlock.getIntParameter(2);
+      if (basis == null) basis = SpectralBasis.estimate(source, parallelism);
+		  
+      return new KLTOpImage(source, layout, renderHints, basis, inverse);
+   }
+}
@@ -0,0 +1,189 @@
+package hyper.dsp;
+
+/**
+  * All the vectors of Z(d) with a given L1 norm, stored in the order of
+  * their labels, so that labelling and decoding are just lookups.
+  *
+  * <p> Index to vector is the vector stored at <code>b*d</code> in a packed
+  * array of shorts. Vector to index goes through a perfect hash: all the
+  * components but the last one, offset by the norm m, are the digits of a
+  * number in base <code>2m+1</code>, and the sign of the last one (whose
+  * absolute value the others determine) is its lowest bit. Different
+  * vectors give different keys, so the key addresses an array of indices
+  * with no collisions to resolve.
+  * <p> Small lattices (2x1, 2x2) with not too high norms have few vectors,
+  * and their tables are much faster than the counting of
+  * <code>Labelling.index</code> and <code>Labelling.vector</code>. Tables
+  * are built the first time they are asked for, as long as all of them
+  * fit in a memory budget; <code>index</code> and <code>vector</code> fall
+  * back to the combinatorial path for the rest. Labels are the same either
+  * way.
+  * <p> Tables never change once built, and are shared by all the threads.
+  * @see hyper.dsp.Labelling
+  * @see hyper.dsp.CardinalTable
+  * @author David Gavilan
+  */
+public final class LabelTable {
+
+  /** Largest dimension that is ever tabulated, that of a 4x4 lattice */
+  public static final int MAX_DIM = 16;
+  /** Memory budget if none is set, in bytes */
+  public static final long DEFAULT_BUDGET = 16L << 20;
+
+  /** Marks the tables that didn't fit in the budget */
+  private static final LabelTable NONE = new LabelTable(0, 0, null, null);
+
+  /** Tables by dimension and norm, null if not built yet. Replaced, never
+    * modified, when a table is added. */
+  private static volatile LabelTable tables[][] =
+      new LabelTable[MAX_DIM+1][CardinalTable.NORMS];
+  private static long budget = DEFAULT_BUDGET, used = 0;
+
+  private final int dim, norm;
+  /** The vectors, <code>dim</code> components each, by index */
+  private final short vectors[];
+  /** Index of each key */
+  private final int indices[];
+
+  private LabelTable(int dim, int norm, short vectors[], int indices[]) {
+    this.dim = dim;
+    this.norm = norm;
+    this.vectors = vectors;
+    this.indices = indices;
+  }
+
+  /** Sets the memory all the tables may take, in bytes. Tables already
+    * built are dropped, and built again when needed. */
+  public static synchronized void setMemoryBudget(long bytes) {
+    budget = bytes;
+    used = 0;
+    tables = new LabelTable[MAX_DIM+1][CardinalTable.NORMS];
+  }
+
+  public static synchronized long getMemoryBudget() { return budget; }
+
+  /** Memory taken by the tables built so far, in bytes */
+  public static synchronized long getMemoryUsed() { return used; }
+
+  /** Returns the table of the vectors of norm m in Z(d), building it if
+    * needed, or null if it doesn't fit in the budget */
+  public static LabelTable forNorm(int d, int m) {
+    if (d < 1 || d > MAX_DIM || m < 0 || m >= CardinalTable.NORMS)
+      return null;
+    LabelTable t = tables[d][m];
+    if (t == null) t = build(d, m);
+    return (t == NONE) ? null : t;
+  }
+
+  private static synchronized LabelTable build(int d, int m) {
+    LabelTable t = tables[d][m];
+    if (t != null) return t;
+    t = NONE;
+    long keys = keys(d, m);
+    CardinalTable ct = CardinalTable.forDimension(d);
+    if (keys > 0 && ct.fitsLong(m) && ct.get(m) <= Integer.MAX_VALUE) {
+      long count = ct.get(m);
+      long bytes = 2*count*d + 4*keys;
+      if (used + bytes <= budget) {
+        short vectors[] = new short[(int)count*d];
+        int indices[] = new int[(int)keys];
+        fill(vectors, new short[d], 0, m, new int[1]);
+        for (int b=0; b<count; b++)
+          indices[key(vectors, b*d, d, m)] = b;
+        t = new LabelTable(d, m, vectors, indices);
+        used += bytes;
+      }
+    }
+    LabelTable grown[][] = (LabelTable[][])tables.clone();
+    grown[d] = (LabelTable[])grown[d].clone();
+    grown[d][m] = t;
+    tables = grown;
+    return t;
+  }
+
+  /** Number of keys of the hash of norm m in Z(d), 0 if too many */
+  private static long keys(int d, int m) {
+    long keys = 2;
+    for (int i=1; i<d; i++) {
+      keys *= 2*m+1;
+      if (keys > Integer.MAX_VALUE) return 0;
+    }
+    return keys;
+  }
+
+  /** Stores, from component k on, all the vectors of norm m in label
+    * order: 0 first, then +1, -1, +2, -2... each followed by all the
+    * vectors of the remaining norm in the remaining components. */
+  private static void fill(short vectors[], short x[], int k, int m,
+      int next[]) {
+    int d = x.length;
+    if (k == d-1) {
+      // the last component takes the remaining norm
+      x[k] = (short)m;
+      System.arraycopy(x, 0, vectors, d*next[0]++, d);
+      if (m > 0) {
+        x[k] = (short)-m;
+        System.arraycopy(x, 0, vectors, d*next[0]++, d);
+      }
+      x[k] = 0;
+      return;
+    }
+    x[k] = 0;
+    fill(vectors, x, k+1, m, next);
+    for (int h=1; h<=m; h++) {
+      x[k] = (short)h;
+      fill(vectors, x, k+1, m-h, next);
+      x[k] = (short)-h;
+      fill(vectors, x, k+1, m-h, next);
+    }
+    x[k] = 0;
+  }
+
+  /** Perfect hash of a vector of norm m */
+  private static int key(short x[], int offset, int d, int m) {
+    int key = 0;
+    for (int i=d-2; i>=0; i--) key = key*(2*m+1) + x[offset+i] + m;
+    return 2*key + ((x[offset+d-1] < 0) ? 1 : 0);
+  }
+
+  public int getDimension() { return dim; }
+  public int getNorm() { return norm; }
+
+  /** Number of vectors in the table */
+  public int size() { return vectors.length/dim; }
+
+  /** Index of a vector of this norm and dimension, the same as
+    * <code>Labelling.index</code> */
+  public long index(short x[]) {
+    return indices[key(x, 0, dim, norm)];
+  }
+
+  /** Copies the vector of index b to x, which must have <code>dim</code>
+    * components. The index must be below <code>size()</code>. */
+  public void vector(long b, short x[]) {
+    System.arraycopy(vectors, (int)b*dim, x, 0, dim);
+  }
+
+  /** Index of a vector, from its table if there is one within the budget,
+    * or as <code>Labelling.indexExact</code> does otherwise */
+  public static long index(short x[], int m) {
+    LabelTable t = forNorm(x.length, m);
+    return (t != null) ? t.index(x) : Labelling.indexExact(x);
+  }
+
+  /** Vector of index b and norm m in Z(d), from its table if there is one
+    * within the budget, or as <code>Labelling.vector</code> finds it
+    * otherwise.
+    * @throws IllegalArgumentException if there is no such vector
+    */
+  public static short[] vector(int m, long b, int d) {
+    LabelTable t = forNorm(d, m);
+    if (t == null) return Labelling.vector(m, b, d);
+    if (b < 0 || b >= t.size())
+      throw new IllegalArgumentException("Labelling: no vector of norm "+
+          m+" and index "+b+" in Z("+d+")");
+    short x[] = new short[d];
+    t.vector(b, x);
+    return x;
+  }
+}
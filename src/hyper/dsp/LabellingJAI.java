@@ -13,23 +13,28 @@ import javax.media.jai.*;
 import java.awt.color.*;
 import java.awt.Transparency;
 import java.util.Vector;
-import javax.media.jai.iterator.*;
 import java.io.*;
 import org.freehep.util.io.*;
 
 /**
   * Class that performs the labelling of lattices on quantized JAI images.
   * <P>It uses its parent's methods to code/decode each lattice.
+  * <P>Labels of small lattices are looked up in <code>LabelTable</code>
+  * as long as its tables fit in their memory budget (see
+  * <code>LabelTable.setMemoryBudget</code>), and counted as
+  * <code>Labelling</code> does otherwise. The stream is the same.
   * @author David Gavilan, Joan Serra
   " @see <a href="http://java.freehep.org/lib/freehep/api/index.html">FreeHep API</a>
   */
 public class LabellingJAI extends Labelling {
 
     public LabellingJAI() {
+		tabulated = true;
     }
 
     public LabellingJAI(String filename) throws FileNotFoundException {
 		super(filename);
+		tabulated = true;
     }
 
     /** Assuming bidimensional lattices, we label (index+norm) each channel
@@ -62,43 +67,378 @@ public class LabellingJAI extends Labelling {
 
 	System.out.println("Labelling - #vectors: "+
 		     numberOfVectors(level,width,height,lattices));
-	// used to access the source image
-	RandomIter iter = RandomIterFactory.create(in, null);
-  
-	int idx=0;
-	//int ix = 0;
-       
+	// the samples of a band of the tile being labelled
+	int[] tile = new int[tileWidth*tileHeight];
+
 	// we send each tile separately
 	for (int tileYOff = 0; tileYOff<height; tileYOff+=tileHeight)
-	for (int tileXOff = 0; tileXOff<width; tileXOff+=tileWidth)
+	for (int tileXOff = 0; tileXOff<width; tileXOff+=tileWidth) {
+	Raster raster = getTile(in,tileXOff,tileYOff,tileWidth,tileHeight);
+	// from the time being, we process each channel separately
+	for (int band=0; band < bands; band++) { 
+	    raster.getSamples(tileXOff,tileYOff,tileWidth,tileHeight,band,tile);
+	    labelBand(tile,tileWidth,tileHeight,level,lattices[band]);
+	}
+	}
+
+	if (clipped > 0)
+	    System.out.println("Labelling - clipped vectors: "+clipped+
+			       " of "+labelled+" (norm removed: "+clippedNorm+")");
+	//return indexTable;
+    } // end imageLabelling
+
+    /** We decode each (norm,index) pair to rebuild the image. <p>
+      * Corrupt labels are decoded as zero vectors, and counted in
+      * <code>getDecodingErrors</code>.
+      * @param din the <code>DataInput</code> file
+      * @param level number of levels of the wavelet transform
+      * @param lattices a list of lattices parameters
+      * @return a <code>PlanarImage</code> containing the decoded image
+      *         (ready to dequantize)
+      * @see hyper.dsp.Labelling#decodeLabel
+      */
+    public PlanarImage imageDecoding(BitInputStream din,
+				     int level, Vector[] lattices) 
+	throws IOException {
+
+	int width,height,bands,tileWidth, tileHeight;        
+	// we read the image dimensions
+	width = (int)din.readUBits(16);
+	height = (int)din.readUBits(16);
+	tileWidth = (int)din.readUBits(16);
+	tileHeight = (int)din.readUBits(16);      
+	bands = (int)din.readUBits(8);
+
+	System.out.println("decoding "+width+"x"+height+"x"+bands
+			   +" ("+tileWidth+"x"+tileHeight+") ...");
+
+	TiledImage outImage = createImage(width,height,tileWidth,tileHeight,bands);
+
+	// the samples of a band of the tile being decoded
+	int[] tile = new int[tileWidth*tileHeight];
+
+	// we receive each tile separately
+	for (int tileYOff = 0; tileYOff<height; tileYOff+=tileHeight)
+	for (int tileXOff = 0; tileXOff<width; tileXOff+=tileWidth) {
+	int tx = outImage.XToTileX(tileXOff), ty = outImage.YToTileY(tileYOff);
+	WritableRaster raster = outImage.getWritableTile(tx,ty);
 	// from the time being, we process each channel separately
 	for (int band=0; band < bands; band++) { 
+	    java.util.Arrays.fill(tile,0);
+	    decodeBand(din,tile,tileWidth,tileHeight,level,lattices[band]);
+	    raster.setSamples(raster.getMinX(),raster.getMinY(),
+			      tileWidth,tileHeight,band,tile);
+	}
+	outImage.releaseWritableTile(tx,ty);
+	}
+    
+	return outImage;      
+  	
+    } // end imageDecoding
+
+    /** Labels an image like <code>imageLabelling</code>, but each band of
+      * each tile into a segment of its own, so that all of them can be
+      * labelled at the same time, and decoded at the same time or alone.
+      * <p> The stream starts with the same header, followed by a table with
+      * the offset (64 bits) of each segment from the end of the table, and
+      * the offset where the last one ends. Segments go in the same order
+      * as in <code>imageLabelling</code>, tiles in raster order and bands
+      * within each tile, and start at a byte boundary. Read it back with
+      * the <code>imageDecoding</code> and <code>tileDecoding</code> taking
+      * the bytes of the stream.
+      * <p> Tiles are fetched a row at a time, each of them once, and shared
+      * by the tasks labelling its bands. The table goes before the segments,
+      * so these are all kept in memory until the last one is labelled: the
+      * heap must hold the whole labelled stream besides a row of tiles.
+      * @param parallelism number of threads, 0 for one per processor
+      * @see hyper.dsp.ParallelWavelet
+      */
+    public void imageLabelling(PlanarImage in, final int level,
+			       final Vector[] lattices, int parallelism)
+    throws IOException {
+	final int bands = in.getSampleModel().getNumBands(); 
+	int height = in.getHeight();
+	final int tileHeight=in.getTileHeight(); 
+	int width = in.getWidth();
+	final int tileWidth=in.getTileWidth();
+	final int tilesX = (width+tileWidth-1)/tileWidth;
+	int tilesY = (height+tileHeight-1)/tileHeight;
+	final PlanarImage src = in;
+
+	System.out.println("Labelling - #vectors: "+
+		     numberOfVectors(level,width,height,lattices));
+
+	final byte[][] segments = new byte[tilesX*tilesY*bands][];
+	final Labelling[] labellers = new Labelling[segments.length];
+	final IOException[] error = new IOException[1];
+	Rectangle[] areas = new Rectangle[tilesX];
+	for (int ty=0;ty<tilesY;ty++) {
+	final int y = ty*tileHeight, first = ty*tilesX*bands;
+	// each tile of the row is fetched once, for all its bands
+	for (int tx=0;tx<tilesX;tx++)
+	    areas[tx] = new Rectangle(tx*tileWidth,y,tileWidth,tileHeight);
+	final Raster[] row = ParallelWavelet.getTiles(parallelism,src,areas);
+	ParallelWavelet.forEachBand(parallelism, tilesX*bands,
+	  new ParallelWavelet.BandTask() {
+	    public void computeBand(int k) {
+		int s = first+k, tx = k/bands, band = k%bands;
+		int x = tx*tileWidth;
+		int[] tile = row[tx].getSamples(x,y,tileWidth,tileHeight,band,
+						(int[])null);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		LabellingJAI lab = new LabellingJAI();
+		lab.dout = new BitOutputStream(bytes);
+		try {
+		    lab.labelBand(tile,tileWidth,tileHeight,level,lattices[band]);
+		    lab.dout.close();
+		} catch (IOException e) {
+		    error[0] = e;
+		}
+		segments[s] = bytes.toByteArray();
+		labellers[s] = lab;
+	    }
+	  });
+	if (error[0] != null) throw error[0];
+	}
+
+	dout.writeUBits(width,16);
+	dout.writeUBits(height,16);
+	dout.writeUBits(tileWidth,16);
+	dout.writeUBits(tileHeight,16);
+	dout.writeUBits(bands,8);
+	long offset = 0;
+	for (int s=0;s<segments.length;s++) {
+	    dout.writeUBits(offset,64);
+	    offset += segments[s].length;
+	}
+	dout.writeUBits(offset,64);
+	for (int s=0;s<segments.length;s++) {
+	    dout.write(segments[s]);
+	    labelled += labellers[s].labelled;
+	    clipped += labellers[s].clipped;
+	    clippedNorm += labellers[s].clippedNorm;
+	}
+
+	if (clipped > 0)
+	    System.out.println("Labelling - clipped vectors: "+clipped+
+			       " of "+labelled+" (norm removed: "+clippedNorm+")");
+    }
+
+    /** Decodes a whole stream written by the <code>imageLabelling</code>
+      * with parallelism, decoding its segments at the same time.
+      * @param data the bytes of the stream
+      * @param parallelism number of threads, 0 for one per processor
+      * @return the decoded image (ready to dequantize)
+      */
+    public PlanarImage imageDecoding(byte[] data, int level,
+				     Vector[] lattices, int parallelism)
+	throws IOException {
+	DataInputStream din = new DataInputStream(new ByteArrayInputStream(data));
+	int[] header = readHeader(din);
+	long[] offsets = readOffsets(din,header);
+	int start = 9+8*offsets.length;
+
+	System.out.println("decoding "+header[0]+"x"+header[1]+"x"+header[4]
+			   +" ("+header[2]+"x"+header[3]+") ...");
+	TiledImage outImage = createImage(header[0],header[1],header[2],
+					  header[3],header[4]);
+	decodeSegments(data,-start,offsets,0,offsets.length-1,header,
+		       outImage,level,lattices,parallelism);
+	return outImage;
+    }
+
+    /** Decodes just one tile of a stream written by the
+      * <code>imageLabelling</code> with parallelism.
+      * @param data the bytes of the stream
+      * @param tileX the column of the tile, 0 for the first one
+      * @param tileY the row of the tile
+      * @return the samples of the tile
+      */
+    public Raster tileDecoding(byte[] data, int level, Vector[] lattices,
+			       int tileX, int tileY) throws IOException {
+	DataInputStream din = new DataInputStream(new ByteArrayInputStream(data));
+	int[] header = readHeader(din);
+	long[] offsets = readOffsets(din,header);
+	int first = firstSegment(header,tileX,tileY);
+	TiledImage outImage = createImage(header[0],header[1],header[2],
+					  header[3],header[4]);
+	decodeSegments(data,-9-8*offsets.length,offsets,first,first+header[4],
+		       header,outImage,level,lattices,1);
+	return outImage.getTile(tileX,tileY);
+    }
+
+    /** Decodes just one tile of a stream written by the
+      * <code>imageLabelling</code> with parallelism, reading from the file
+      * only its header and the segments of the tile.
+      * @param file the stream
+      * @param tileX the column of the tile, 0 for the first one
+      * @param tileY the row of the tile
+      * @return the samples of the tile
+      */
+    public Raster tileDecoding(RandomAccessFile file, int level,
+			       Vector[] lattices, int tileX, int tileY)
+	throws IOException {
+	file.seek(0);
+	int[] header = readHeader(file);
+	long[] offsets = readOffsets(file,header);
+	int first = firstSegment(header,tileX,tileY);
+	int last = first+header[4];
+	byte[] data = new byte[(int)(offsets[last]-offsets[first])];
+	file.seek(9+8*offsets.length+offsets[first]);
+	file.readFully(data);
+	TiledImage outImage = createImage(header[0],header[1],header[2],
+					  header[3],header[4]);
+	decodeSegments(data,offsets[first],offsets,first,last,header,
+		       outImage,level,lattices,1);
+	return outImage.getTile(tileX,tileY);
+    }
+
+    /** Reads width, height, tile width, tile height and bands */
+    private static int[] readHeader(DataInput din) throws IOException {
+	int[] header = new int[5];
+	for (int i=0;i<4;i++) header[i] = din.readUnsignedShort();
+	header[4] = din.readUnsignedByte();
+	return header;
+    }
+
+    /** Reads the offsets of the segments, and where the last one ends */
+    private static long[] readOffsets(DataInput din, int[] header)
+	throws IOException {
+	int tilesX = (header[0]+header[2]-1)/header[2];
+	int tilesY = (header[1]+header[3]-1)/header[3];
+	long[] offsets = new long[tilesX*tilesY*header[4]+1];
+	for (int s=0;s<offsets.length;s++)
+	    offsets[s] = din.readLong();
+	return offsets;
+    }
+
+    /** The segment of the first band of a tile */
+    private static int firstSegment(int[] header, int tileX, int tileY) {
+	int tilesX = (header[0]+header[2]-1)/header[2];
+	int tilesY = (header[1]+header[3]-1)/header[3];
+	if (tileX < 0 || tileX >= tilesX || tileY < 0 || tileY >= tilesY)
+	    throw new IllegalArgumentException("No tile ("+tileX+", "+tileY+")");
+	return (tileY*tilesX+tileX)*header[4];
+    }
+
+    /** Decodes the segments from <code>first</code> to <code>last</code>
+      * (excluded) into their tiles of the image.
+      * @param data bytes with the segments, segment s starting at
+      *        <code>offsets[s]-start</code>
+      */
+    private void decodeSegments(final byte[] data, final long start,
+				final long[] offsets, int first, int last,
+				int[] header, TiledImage outImage,
+				final int level, final Vector[] lattices,
+				int parallelism) throws IOException {
+	final int tileWidth = header[2], tileHeight = header[3];
+	final int bands = header[4];
+	int tilesX = (header[0]+tileWidth-1)/tileWidth;
+	// get the tiles first, as the segments of a tile write its bands
+	final WritableRaster[] rasters = new WritableRaster[last-first];
+	for (int s=first;s<last;s++)
+	    if (s == first || s%bands == 0) {
+		int t = s/bands;
+		rasters[s-first] = outImage.getWritableTile(t%tilesX,t/tilesX);
+	    } else rasters[s-first] = rasters[s-first-1];
+
+	final int from = first;
+	final IOException[] error = new IOException[1];
+	// each segment counts its own decoding errors
+	final Labelling[] decoders = new Labelling[last-first];
+	ParallelWavelet.forEachBand(parallelism, last-first,
+	  new ParallelWavelet.BandTask() {
+	    public void computeBand(int k) {
+		int s = from+k;
+		int pos = (int)(offsets[s]-start);
+		int length = (int)(offsets[s+1]-offsets[s]);
+		BitInputStream din = new BitInputStream(
+		    new ByteArrayInputStream(data,pos,length));
+		int[] tile = new int[tileWidth*tileHeight];
+		LabellingJAI lab = new LabellingJAI();
+		try {
+		    lab.decodeBand(din,tile,tileWidth,tileHeight,level,
+				   lattices[s%bands]);
+		} catch (IOException e) {
+		    error[0] = e;
+		}
+		decoders[k] = lab;
+		WritableRaster raster = rasters[k];
+		raster.setSamples(raster.getMinX(),raster.getMinY(),
+				  tileWidth,tileHeight,s%bands,tile);
+	    }
+	  });
+
+	for (int s=first;s<last;s++)
+	    if (s == first || s%bands == 0) {
+		int t = s/bands;
+		outImage.releaseWritableTile(t%tilesX,t/tilesX);
+	    }
+	if (error[0] != null) throw error[0];
+	for (int k=0;k<decoders.length;k++)
+	    decodingErrors += decoders[k].decodingErrors;
+    }
+
+    /** Creates the short image the labels are decoded to */
+    protected static TiledImage createImage(int width, int height,
+					    int tileWidth, int tileHeight,
+					    int bands) {
+	int[] order = new int[bands];
+	for (int i=0;i<bands;i++) order[i]=i;
+	ComponentSampleModel csm = new ComponentSampleModel(
+        DataBuffer.TYPE_SHORT, tileWidth, tileHeight,
+	tileWidth*bands, bands, order);
+
+	for (int i=0;i<bands;i++) order[i]=16;
+	ColorSpace cs;
+	switch (bands) {
+	case 1:
+	    cs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
+	    break;
+	case 3:
+	    cs = ColorSpace.getInstance(ColorSpace.CS_sRGB);
+	    break;
+	default:
+	    // F = 15 component
+	    cs = ColorSpace.getInstance(ColorSpace.TYPE_FCLR);
+	}
+	ComponentColorModel ccm = new ComponentColorModel(
+        cs, order,
+	false, false, Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
+		
+	return new TiledImage(0, 0, 
+           width, height, 0, 0, 
+	   csm, ccm);
+    }
+
+    /** Labels the subbands of a band of a tile, in the order of
+      * <code>imageLabelling</code>.
+      * @param tile the samples of the band, row by row
+      * @param lattices the lattice of each subband of the band
+      */
+    protected void labelBand(int[] tile, int tileWidth, int tileHeight,
+			     int level, Vector lattices) throws IOException {
+	    int idx;
 	    int subh = tileHeight >> level;
 	    int subw = tileWidth >> level;
 	    // subband 0
 	    idx=0;
 	    int lw,lh;
-	    ParamLattice pml = (ParamLattice)lattices[band].get(idx);
+	    ParamLattice pml = (ParamLattice)lattices.get(idx);
 	    // we don't label subband 0 if it's not necessary,
 	    // so it won't require 9 bytes, just 1
 	    if (pml.isBasic()) {
 	      for (int j=0;j<subh;j++)
 	       for (int i=0;i<subw;i++)
-		 dout.write((byte)iter.getSample(i+tileXOff,j+tileYOff,band));
+		 dout.write((byte)tile[j*tileWidth+i]);
 	    } else {
 	       lw=pml.getWidth(); lh=pml.getHeight();	    
 	       for (int j=0;j<subh;j+=lh)
 		for (int i=0;i<subw;i+=lw) {
-		    short[] v=vectorFromLattice(iter,
-						i+tileXOff,
-						j+tileYOff,
-						lw,lh,band);
+		    short[] v=vectorFromLattice(tile,tileWidth,tileHeight,
+						i,j,lw,lh);
 		    // we calculate the index and distance
-		    long b=indexAlterLong(v);
-		    int m=distanceL1(v);
-		    dout.writeUBits(m,8);
-		    // dimensio i norma determinen un nombre minim de bits (max index)		    
-		    dout.writeUBits(b,maxBits(pml.getSize(),m));
+		    writeLabel(pml,v);
 		}
 	    }
 	    //System.out.println("ix: "+ix);
@@ -107,21 +447,16 @@ public class LabellingJAI extends Labelling {
 	    // the other subbands
 	    for (int lev=0;lev<level;lev++) {
 		// upper right
-		pml = (ParamLattice)lattices[band].get(idx);
+		pml = (ParamLattice)lattices.get(idx);
 		lw=pml.getWidth(); lh=pml.getHeight();
 		for (int j=0;j<subh;j+=lh)
 		    for (int i=0;i<subw;i+=lw) {
-			short[] v=vectorFromLattice(iter,
-						    tileXOff+i+subw,
-						    tileYOff+j,
-						    lw,lh,band);
+			short[] v=vectorFromLattice(tile,tileWidth,tileHeight,
+						    i+subw,j,lw,lh);
 			// we calculate the index and distance
 			//indexTable[0][ix]=(short)index(v);
 			//indexTable[1][ix++]=(short)distanceL1(v);
-		    long b=indexAlterLong(v);
-		    int m=distanceL1(v);
-		    dout.writeUBits(m,8);
-		    dout.writeUBits(b,maxBits(pml.getSize(),m));
+		    writeLabel(pml,v);
 			//if (mm==195) 
 			//    System.out.println("bb: "+kk+"mm: "+mm+"v: "+verV(v));
 		    }
@@ -129,136 +464,70 @@ public class LabellingJAI extends Labelling {
 		idx++;
 
 		// bottom left
-		pml = (ParamLattice)lattices[band].get(idx);
+		pml = (ParamLattice)lattices.get(idx);
 		lw=pml.getWidth(); lh=pml.getHeight();
 		for (int j=0;j<subh;j+=lh)
 		    for (int i=0;i<subw;i+=lw) {
-			short[] v=vectorFromLattice(iter,
-						    tileXOff+i,
-						    tileYOff+j+subh,
-						    lw,lh,band);
+			short[] v=vectorFromLattice(tile,tileWidth,tileHeight,
+						    i,j+subh,lw,lh);
 			// we calculate the index and distance
 			//indexTable[0][ix]=(short)index(v);
 			//indexTable[1][ix++]=(short)distanceL1(v);
-		    long b=indexAlterLong(v);
-		    int m=distanceL1(v);
-		    dout.writeUBits(m,8);
-		    dout.writeUBits(b,maxBits(pml.getSize(),m));
+		    writeLabel(pml,v);
 		    }
 		//System.out.println("ix: "+ix);
 		idx++;
 	    	
 		// bottom right
-		pml = (ParamLattice)lattices[band].get(idx);
+		pml = (ParamLattice)lattices.get(idx);
 		lw=pml.getWidth(); lh=pml.getHeight();
 		for (int j=0;j<subh;j+=lh)
 		    for (int i=0;i<subw;i+=lw) {
-			short[] v=vectorFromLattice(iter,
-						    tileXOff+i+subw,
-						    tileYOff+j+subh,
-						    lw,lh,band);
+			short[] v=vectorFromLattice(tile,tileWidth,tileHeight,
+						    i+subw,j+subh,lw,lh);
 			// we calculate the index and distance			
 			//indexTable[0][ix]=(short)index(v);
 			//indexTable[1][ix++]=(short)distanceL1(v);
-		    long b=indexAlterLong(v);
-		    int m=distanceL1(v);
-		    dout.writeUBits(m,8);
-		    dout.writeUBits(b,maxBits(pml.getSize(),m));
+		    writeLabel(pml,v);
 		    }
 		//System.out.println("ix: "+ix);
 		idx++;
 
 		subw<<=1; subh<<=1;
 	    }
+    }
 
-	}
-
-	//return indexTable;
-    } // end imageLabelling
-
-    /** We decode each (norm,index) pair to rebuild the image. <p>
-      * Due to some bug, it can freeze your app when decoding wrong coded vectors.
-      * This problem arises because of <code>vector</code> function
-      * @param din the <code>DataInput</code> file
-      * @param level number of levels of the wavelet transform
-      * @param lattices a list of lattices parameters
-      * @return a <code>PlanarImage</code> containing the decoded image
-      *         (ready to dequantize)
-      * @see hyper.dsp.Labelling#vector
+    /** Decodes the subbands of a band of a tile, written by
+      * <code>labelBand</code>.
+      * @param tile where the samples are decoded, row by row. Samples out of
+      *        every subband are left as they are.
+      * @param lattices the lattice of each subband of the band
       */
-    public PlanarImage imageDecoding(BitInputStream din,
-				     int level, Vector[] lattices) 
+    protected void decodeBand(BitInputStream din, int[] tile, int tileWidth,
+			      int tileHeight, int level, Vector lattices)
 	throws IOException {
-
-	int width,height,bands,tileWidth, tileHeight;        
-	// we read the image dimensions
-	width = (int)din.readUBits(16);
-	height = (int)din.readUBits(16);
-	tileWidth = (int)din.readUBits(16);
-	tileHeight = (int)din.readUBits(16);      
-	bands = (int)din.readUBits(8);
-
-	System.out.println("decoding "+width+"x"+height+"x"+bands
-			   +" ("+tileWidth+"x"+tileHeight+") ...");
-
-	int[] order = new int[bands];
-	for (int i=0;i<bands;i++) order[i]=i;
-	ComponentSampleModel csm = new ComponentSampleModel(
-        DataBuffer.TYPE_SHORT, tileWidth, tileHeight,
-	tileWidth*bands, bands, order);
-
-	for (int i=0;i<bands;i++) order[i]=16;
-	ColorSpace cs;
-	switch (bands) {
-	case 1:
-	    cs = ColorSpace.getInstance(ColorSpace.CS_GRAY);
-	    break;
-	case 3:
-	    cs = ColorSpace.getInstance(ColorSpace.CS_sRGB);
-	    break;
-	default:
-	    // F = 15 component
-	    cs = ColorSpace.getInstance(ColorSpace.TYPE_FCLR);
-	}
-	ComponentColorModel ccm = new ComponentColorModel(
-        cs, order,
-	false, false, Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
-		
-	TiledImage outImage = new TiledImage(0, 0, 
-           width, height, 0, 0, 
-	   csm, ccm);
-
-  	int idx=0;	
-
-	// we receive each tile separately
-	for (int tileYOff = 0; tileYOff<height; tileYOff+=tileHeight)
-	for (int tileXOff = 0; tileXOff<width; tileXOff+=tileWidth)
-	// from the time being, we process each channel separately
-	for (int band=0; band < bands; band++) { 
+	    int idx;
 	    int subh = tileHeight >> level;
 	    int subw = tileWidth >> level;
 	    // subband 0
 	    idx=0;
 	    //System.out.println("Decoding subband 0");
 	    int lw,lh;
-	    ParamLattice pml = (ParamLattice)lattices[band].get(idx);
+	    ParamLattice pml = (ParamLattice)lattices.get(idx);
 	    // if it's basic, just read data, don't decode
 	    if (pml.isBasic()) {
 	      for(int j=0;j<subh;j++)
 		for (int i=0;i<subw;i++) {
 		    int m = (int)din.readUBits(8);
-		    outImage.setSample(tileXOff+i,tileYOff+j,band,m);
+		    tile[j*tileWidth+i]=m;
 		}		
 	    } else {
 	      lw=pml.getWidth(); lh=pml.getHeight();	   
 	      for (int j=0;j<subh;j+=lh)
 		for (int i=0;i<subw;i+=lw) {
-		    int m=(int)din.readUBits(8);
-		    long b = din.readUBits(maxBits(pml.getSize(),m));
-
-		    short[] v=vector(m,b,lw*lh);
+		    short[] v=decodeLabel(din,pml);
 		    //System.out.println("decoded v: "+verV(v));
-		    expandVector(outImage,tileXOff+i,tileYOff+j,lw,lh,band,v);
+		    expandVector(tile,tileWidth,tileHeight,i,j,lw,lh,v);
 		}
 	    }
 	    idx++;
@@ -267,85 +536,78 @@ public class LabellingJAI extends Labelling {
 	    for (int lev=0;lev<level;lev++) {
 		// upper right
 		//System.out.println("Decoding subband "+idx);
-		pml = (ParamLattice)lattices[band].get(idx);
+		pml = (ParamLattice)lattices.get(idx);
 		lw=pml.getWidth(); lh=pml.getHeight();
 		for (int j=0;j<subh;j+=lh)
 		    for (int i=0;i<subw;i+=lw) {
-			    int m=(int)din.readUBits(8);
-			    long b = din.readUBits(maxBits(pml.getSize(),m));
-		    	
-			//System.out.println("v("+m+","+b+")"); 		
-			short[] v=vector(m,b,lw*lh);
+			    short[] v=decodeLabel(din,pml);
 			//System.out.println("decoded v: "+verV(v));
-			expandVector(outImage,tileXOff+i+subw,
-				     tileYOff+j,lw,lh,band,v);
+			expandVector(tile,tileWidth,tileHeight,i+subw,j,lw,lh,v);
 		    }
 		idx++;
 
 		// bottom left
 		//System.out.println("Decoding subband "+idx);
-		pml = (ParamLattice)lattices[band].get(idx);
+		pml = (ParamLattice)lattices.get(idx);
 		lw=pml.getWidth(); lh=pml.getHeight();
 		for (int j=0;j<subh;j+=lh)
 		    for (int i=0;i<subw;i+=lw) {
-			    int m=(int)din.readUBits(8);
-			    long b = din.readUBits(maxBits(pml.getSize(),m));
-			short[] v=vector(m,b,lw*lh);
-			expandVector(outImage,tileXOff+i,
-				     tileYOff+j+subh,lw,lh,band,v);
+			    short[] v=decodeLabel(din,pml);
+			expandVector(tile,tileWidth,tileHeight,i,j+subh,lw,lh,v);
 		    }
 		idx++;
 	    	
 		// bottom right
 		//System.out.println("Decoding subband "+idx);
-		pml = (ParamLattice)lattices[band].get(idx);
+		pml = (ParamLattice)lattices.get(idx);
 		lw=pml.getWidth(); lh=pml.getHeight();
 		for (int j=0;j<subh;j+=lh)
 		    for (int i=0;i<subw;i+=lw) {
-			    int m=(int)din.readUBits(8);
-			    long b = din.readUBits(maxBits(pml.getSize(),m));
-		    	
-			short[] v=vector(m,b,lw*lh);
-			expandVector(outImage,tileXOff+i+subw,
-				     tileYOff+j+subh,lw,lh,band,v);
+			    short[] v=decodeLabel(din,pml);
+			expandVector(tile,tileWidth,tileHeight,i+subw,j+subh,lw,lh,v);
 
 		    }
 		idx++;
 
 		subw<<=1; subh<<=1;
 	    }
-	}
-    
-	return outImage;      
-  	
-    } // end imageDecoding
+    }
 
-    /** Flattens a 2D w*h lattice into a 1D wh vector */
-    protected short[] vectorFromLattice(RandomIter it, int x, int y,
-					int w, int h, int band) {
+    /** Returns the samples of a tile of the image, without copying them
+      * if it is one of its own tiles */
+    protected static Raster getTile(PlanarImage in, int x, int y,
+				    int tileWidth, int tileHeight) {
+	return ParallelWavelet.getTile(in,new Rectangle(x,y,tileWidth,tileHeight));
+    }
+
+    /** Flattens a 2D w*h lattice at (x,y) of the samples of a tile into a
+      * 1D wh vector. Samples out of the tile are taken as 0. */
+    protected short[] vectorFromLattice(int[] tile, int tileWidth,
+					int tileHeight, int x, int y,
+					int w, int h) {
 	short[] v=new short[w*h];
 	int k=0;
 
-	for (int j=0;j<h;j++)
-	    for (int i=0;i<w;i++)
-		v[k++]=(short)it.getSample(i+x,j+y,band);		
+	for (int j=0;j<h;j++) {
+	    int o=(y+j)*tileWidth+x;
+	    for (int i=0;i<w;i++,k++)
+		if (x+i<tileWidth && y+j<tileHeight) v[k]=(short)tile[o+i];
+	}
 
 	return v;
     }
 
-    protected void expandVector(TiledImage out,
-				int x, int y, int w, int h,
-				int band, short[] v) {
-	//System.out.println("aagg! : "+verV(v));
-      
+    /** Puts a decoded vector back in place, the inverse of
+      * <code>vectorFromLattice</code> */
+    protected void expandVector(int[] tile, int tileWidth, int tileHeight,
+				int x, int y, int w, int h, short[] v) {
 	int k=0;
-	for (int j=0;j<h;j++)
-	    for (int i=0;i<w;i++)
-		out.setSample(x+i,y+j,band,v[k++]);
-//		out.setSample(i,j,band,(short)128);	
+	for (int j=0;j<h;j++) {
+	    int o=(y+j)*tileWidth+x;
+	    for (int i=0;i<w;i++,k++)
+		if (x+i<tileWidth && y+j<tileHeight) tile[o+i]=v[k];
+	}
     }
-	
-
 
     public static int numberOfVectors(int level, int width,int height,
 				      Vector[] lattices) {	
@@ -0,0 +1,191 @@
+package hyper.dsp;
+
+import java.awt.image.DataBuffer;
+import java.io.*;
+import java.util.Vector;
+import org.freehep.util.io.*;
+
+/**
+  * Quantizes and labels the subband lines given by a <code>LineWavelet</code>
+  * as they come, so the coefficient image is never stored.
+  * <p> Each subband keeps as many lines as its lattice is high. Once they are
+  * complete, that row of lattices is quantized (like the "lattice" algorism
+  * of <code>QuantizationOpImage</code>) and labelled (like
+  * <code>LabellingJAI</code>), preceded by the band (16 bits) and subband
+  * (8 bits) it belongs to, since rows of different subbands are interleaved.
+  * The stream starts with the width and height (32 bits each), the number of
+  * bands (16 bits), the kind of wavelet, the number of levels and the bits
+  * of the raw samples of subband 0 (8 bits each), and a flag telling whether
+  * the bands were projected by a <code>KLTOpImage</code>, followed in that
+  * case by its basis (see <code>SpectralBasis.write</code>).
+  * <p> The lowpass filters keep subband 0 in the range of the source, so
+  * when its lattice is basic its samples are written as they are, signed,
+  * with the bits given to the constructor (see <code>rawBits</code>). A
+  * sample that doesn't fit is an error, never wrapped.
+  * <p> Lattices at the right or bottom edge of a subband whose size is not a
+  * multiple of theirs are padded with zeros, so every coefficient is coded.
+  * <p> Use <code>LatticeLineDecoder</code> to read it back.
+  * @see hyper.dsp.LineWavelet
+  * @see hyper.dsp.LatticeLineDecoder
+  * @author David Gavilan
+  */
+public class LatticeLineCoder extends Labelling implements SubbandLineListener {
+
+  protected int width, height, bands, level, rawBits;
+  protected Vector[] lattices;
+  protected SpectralBasis basis;
+  /** Lines of each subband waiting for a complete row of lattices */
+  private float pending[][][];
+  private int count[];
+  /** Lines of each subband received so far */
+  private int lines[];
+  /** Vectors being labelled, one per subband as their size may differ */
+  private float vf[][];
+  private short vs[][];
+
+  /**
+    * Writes the header of the stream.
+    * @param out where to write the stream
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53 (see <code>WaveletLifting</code>)
+    * @param level number of levels of the transform
+    * @param lattices a <code>Vector</code> per band, with the lattice of each subband
+    */
+  public LatticeLineCoder(OutputStream out, int width, int height, int bands,
+      int kind, int level, Vector[] lattices) throws IOException {
+    this(out, width, height, bands, kind, level, lattices, null);
+  }
+
+  /**
+    * Writes the header of the stream, with the basis of the KLT applied to
+    * the bands before the wavelet.
+    * @param basis the basis, or null if the bands were not projected
+    */
+  public LatticeLineCoder(OutputStream out, int width, int height, int bands,
+      int kind, int level, Vector[] lattices, SpectralBasis basis)
+      throws IOException {
+    this(out, width, height, bands, kind, level, lattices, basis,
+         rawBits(DataBuffer.TYPE_FLOAT));
+  }
+
+  /**
+    * Writes the header of the stream, with the bits of the raw samples of
+    * subband 0.
+    * @param basis the basis, or null if the bands were not projected
+    * @param rawBits bits of each raw sample of subband 0, from 2 to 32
+    *        (see <code>rawBits(int)</code>)
+    */
+  public LatticeLineCoder(OutputStream out, int width, int height, int bands,
+      int kind, int level, Vector[] lattices, SpectralBasis basis,
+      int rawBits) throws IOException {
+    if (rawBits < 2 || rawBits > 32)
+      throw new IllegalArgumentException("Raw samples must take 2 to 32 "+
+          "bits: "+rawBits);
+    this.dout = new BitOutputStream(out);
+    this.basis = basis;
+    this.rawBits = rawBits;
+    this.width = width;
+    this.height = height;
+    this.bands = bands;
+    this.level = level;
+    this.lattices = lattices;
+
+    int n = bands*(3*level+1);
+    pending = new float[n][][];
+    count = new int[n];
+    lines = new int[n];
+    vf = new float[n][];
+    vs = new short[n][];
+
+    dout.writeUBits(width,32);
+    dout.writeUBits(height,32);
+    dout.writeUBits(bands,16);
+    dout.writeUBits(kind,8);
+    dout.writeUBits(level,8);
+    dout.writeUBits(rawBits,8);
+    dout.writeBitFlag(basis != null);
+    if (basis != null) basis.write(dout);
+  }
+
+  /**
+    * Bits enough for the raw samples of subband 0 of a source of the given
+    * data type, with room for the overshoot of the filters and for the
+    * gain of a <code>KLTOpImage</code>: 16 for bytes, 24 for shorts and 32
+    * for the rest.
+    */
+  public static int rawBits(int dataType) {
+    switch (dataType) {
+    case DataBuffer.TYPE_BYTE:
+      return 16;
+    case DataBuffer.TYPE_SHORT:
+    case DataBuffer.TYPE_USHORT:
+      return 24;
+    default:
+      return 32;
+    }
+  }
+
+  /** Level of a subband, 1 being the finest */
+  protected int subBandLevel(int subband) {
+    return (subband == 0) ? level : level - (subband-1)/3;
+  }
+
+  public void subbandLine(int band, int subband, int line,
+      float data[], int offset, int length) throws IOException {
+    int idx = band*(3*level+1)+subband;
+    ParamLattice pml = (ParamLattice)lattices[band].get(subband);
+    int lh = pml.getHeight();
+    if (pending[idx] == null) {
+      pending[idx] = new float[lh][length];
+      vf[idx] = new float[pml.getSize()];
+      vs[idx] = new short[pml.getSize()];
+    }
+    System.arraycopy(data, offset, pending[idx][count[idx]++], 0, length);
+    boolean last = ++lines[idx] == height >> subBandLevel(subband);
+    if (count[idx] == lh || last) {
+      // the last row of lattices is padded with zeros
+      for (int lj=count[idx]; lj<lh; lj++)
+        java.util.Arrays.fill(pending[idx][lj], 0f);
+      codeRow(band, subband, pml, pending[idx], vf[idx], vs[idx]);
+      count[idx] = 0;
+    }
+  }
+
+  /** Quantizes and labels a row of lattices */
+  protected void codeRow(int band, int subband, ParamLattice pml,
+      float rows[][], float v[], short q[]) throws IOException {
+    int lw = pml.getWidth(), lh = pml.getHeight(), length = rows[0].length;
+    boolean raw = subband == 0 && pml.isBasic();
+
+    dout.writeUBits(band,16);
+    dout.writeUBits(subband,8);
+    for (int i=0; i<length; i+=lw) {
+      // we flatten lattice into a vector, padding the columns out of the row
+      int k=0;
+      for (int lj=0; lj<lh; lj++)
+        for (int li=0; li<lw; li++)
+          v[k++] = (i+li < length) ? rows[lj][i+li] : 0f;
+
+      pml.apply(v, v);
+      for (k=0; k<q.length; k++) {
+        float r = v[k];
+        q[k] = (short)((r > Short.MAX_VALUE) ? Short.MAX_VALUE :
+                       (r < Short.MIN_VALUE) ? Short.MIN_VALUE : r);
+      }
+
+      if (raw) {
+        long limit = 1L << (rawBits-1);
+        if (!(v[0] >= -limit && v[0] < limit))
+          throw new IOException("Sample "+v[0]+" of band "+band+
+              " doesn't fit in "+rawBits+" bits");
+        dout.writeSBits((long)v[0], rawBits);
+      } else {
+        writeLabel(pml, q);
+      }
+    }
+  }
+
+  /** Flushes the last bits and closes the stream */
+  public void close() throws IOException {
+    dout.close();
+  }
+}
@@ -0,0 +1,134 @@
+package hyper.dsp;
+
+import java.io.*;
+import java.util.Vector;
+import org.freehep.util.io.*;
+
+/**
+  * Reads a stream written by <code>LatticeLineCoder</code>, giving
+  * dequantized subband lines to a <code>LineIWavelet</code>.
+  * <p> Rows of lattices are decoded in the order they were written. Those
+  * belonging to other subbands than the one asked for are queued until
+  * they are needed; since the inverse transform asks for lines in about the
+  * same order the forward one gave them, queues stay short.
+  * @see hyper.dsp.LatticeLineCoder
+  * @see hyper.dsp.LineIWavelet
+  * @author David Gavilan
+  */
+public class LatticeLineDecoder extends Labelling implements SubbandLineSource {
+
+  protected BitInputStream din;
+  protected int width, height, bands, kind, level, rawBits;
+  protected Vector[] lattices;
+  protected SpectralBasis basis;
+  /** Decoded lines of each subband, and lines already read */
+  private Vector queues[], free[];
+  /** Lines of each subband decoded so far */
+  private int lines[];
+  /** Rows of lattices still in the stream */
+  private int rowsLeft;
+
+  /**
+    * Reads the header of the stream.
+    * @param din the stream
+    * @param lattices a <code>Vector</code> per band, with the lattice of each
+    *        subband (the same given to the coder)
+    */
+  public LatticeLineDecoder(BitInputStream din, Vector[] lattices)
+      throws IOException {
+    this.din = din;
+    this.lattices = lattices;
+    width = (int)din.readUBits(32);
+    height = (int)din.readUBits(32);
+    bands = (int)din.readUBits(16);
+    kind = (int)din.readUBits(8);
+    level = (int)din.readUBits(8);
+    rawBits = (int)din.readUBits(8);
+    if (din.readBitFlag()) basis = SpectralBasis.read(din, bands);
+
+    int subBands = 3*level+1;
+    queues = new Vector[bands*subBands];
+    free = new Vector[bands*subBands];
+    lines = new int[bands*subBands];
+    for (int i=0; i<queues.length; i++) {
+      queues[i] = new Vector();
+      free[i] = new Vector();
+    }
+    for (int b=0; b<bands; b++)
+      for (int sb=0; sb<subBands; sb++) {
+        ParamLattice pml = (ParamLattice)lattices[b].get(sb);
+        int lh = pml.getHeight();
+        rowsLeft += ((height >> subBandLevel(sb)) + lh-1) / lh;
+      }
+  }
+
+  public int getWidth() { return width; }
+  public int getHeight() { return height; }
+  public int getNumBands() { return bands; }
+  /** The kind of wavelet, see <code>WaveletLifting</code> */
+  public int getKind() { return kind; }
+  public int getLevel() { return level; }
+  /** The basis of the KLT applied to the bands, or null if there was none */
+  public SpectralBasis getBasis() { return basis; }
+
+  /** Level of a subband, 1 being the finest */
+  protected int subBandLevel(int subband) {
+    return (subband == 0) ? level : level - (subband-1)/3;
+  }
+
+  public void readSubbandLine(int band, int subband, int line,
+      float data[], int offset, int length) throws IOException {
+    int idx = band*(3*level+1)+subband;
+    Vector q = queues[idx];
+    while (q.isEmpty() && rowsLeft > 0) decodeRow();
+    if (q.isEmpty()) {
+      // lines past the end of the stream
+      for (int i=0; i<length; i++) data[offset+i] = 0f;
+      return;
+    }
+    float row[] = (float[])q.remove(0);
+    System.arraycopy(row, 0, data, offset, length);
+    free[idx].add(row);
+  }
+
+  /** Decodes the next row of lattices and queues its lines */
+  protected void decodeRow() throws IOException {
+    int band = (int)din.readUBits(16);
+    int subband = (int)din.readUBits(8);
+    int idx = band*(3*level+1)+subband;
+    ParamLattice pml = (ParamLattice)lattices[band].get(subband);
+    int lw = pml.getWidth(), lh = pml.getHeight(), size = pml.getSize();
+    int length = width >> subBandLevel(subband);
+    boolean raw = subband == 0 && pml.isBasic();
+
+    float rows[][] = new float[lh][];
+    for (int lj=0; lj<lh; lj++) {
+      rows[lj] = free[idx].isEmpty() ? new float[length] :
+        (float[])free[idx].remove(free[idx].size()-1);
+    }
+
+    float v[] = new float[size];
+    for (int i=0; i<length; i+=lw) {
+      if (raw) {
+        v[0] = din.readSBits(rawBits);
+      } else {
+        short[] s = decodeLabel(din, pml);
+        for (int k=0; k<size; k++) v[k] = s[k];
+      }
+      pml.iapply(v, v);
+      int k=0;
+      // padding out of the row is dropped
+      for (int lj=0; lj<lh; lj++)
+        for (int li=0; li<lw; li++, k++)
+          if (i+li < length) rows[lj][i+li] = v[k];
+    }
+
+    // and so are the padding rows of the last row of lattices
+    int real = Math.min(lh, (height >> subBandLevel(subband)) - lines[idx]);
+    for (int lj=0; lj<lh; lj++)
+      if (lj < real) queues[idx].add(rows[lj]);
+      else free[idx].add(rows[lj]);
+    lines[idx] += real;
+    rowsLeft--;
+  }
+}
@@ -0,0 +1,171 @@
+package hyper.dsp;
+
+import java.awt.image.DataBuffer;
+import java.io.*;
+import java.util.Vector;
+
+/**
+  * Line-based inverse wavelet transform of one band of an image.
+  *
+  * <p> Scanlines are read one at a time, and every level asks the
+  * <code>SubbandLineSource</code> for the subband lines it needs to give its
+  * next row: the low band ones come from the coarser level (or subband 0),
+  * the others from the source. Rows go through the inverse vertical lifting
+  * steps and then the inverse horizontal pass, keeping just a few rows per
+  * level in memory.
+  * @see hyper.dsp.LineWavelet
+  * @author David Gavilan
+  */
+public class LineIWavelet {
+
+  protected int kind, level, band;
+  protected SubbandLineSource source;
+  private Level levels[];
+  private float line[];
+
+  /**
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53 (see <code>WaveletLifting</code>)
+    * @param width width of the image
+    * @param height height of the image
+    * @param level number of levels of the transform
+    * @param band the band of the image, just to tell the source
+    * @param source where to read the subband lines from
+    */
+  public LineIWavelet(int kind, int width, int height, int level, int band,
+      SubbandLineSource source) {
+    LineWavelet.checkSize(width, height, level);
+    this.kind = kind;
+    this.level = level;
+    this.band = band;
+    this.source = source;
+    line = new float[width];
+    levels = new Level[level];
+    for (int l=0; l<level; l++) levels[l] = new Level(l, width>>l, height>>l);
+  }
+
+  /** Reads the next scanline of the image.
+    * @param data[] where to store the samples
+    * @param offset where the scanline starts
+    * @param pixelStride the distance between consecutive samples
+    */
+  public void readLine(float data[], int offset, int pixelStride)
+      throws IOException {
+    levels[0].readRow(data, offset, pixelStride);
+  }
+
+  /** One level of the transform */
+  private class Level implements LineLifting.Sink {
+    int l, sizex, sizey, halfx, pairs;
+    LineLifting lifting;
+    /** Rows already done, waiting to be read */
+    Vector done = new Vector();
+    /** Rows not in use, so that they are allocated just once */
+    Vector free = new Vector();
+
+    Level(int l, int sizex, int sizey) {
+      this.l = l;
+      this.sizex = sizex;
+      this.sizey = sizey;
+      halfx = sizex >> 1;
+      lifting = new LineLifting(kind, false, sizex, this);
+    }
+
+    float[] newRow() {
+      return free.isEmpty() ? new float[sizex] :
+        (float[])free.remove(free.size()-1);
+    }
+
+    void readRow(float data[], int offset, int pixelStride)
+        throws IOException {
+      // feed pairs of rows until one comes out
+      while (done.isEmpty()) {
+        int sb = 3*(level-1-l);
+        int j = pairs++;
+        float even[] = newRow(), odd[] = newRow();
+        if (l == level-1) source.readSubbandLine(band, 0, j, even, 0, halfx);
+        else levels[l+1].readRow(even, 0, 1);
+        source.readSubbandLine(band, sb+1, j, even, halfx, halfx);
+        source.readSubbandLine(band, sb+2, j, odd, 0, halfx);
+        source.readSubbandLine(band, sb+3, j, odd, halfx, halfx);
+        lifting.push(even, j<<1);
+        lifting.push(odd, (j<<1)+1);
+        if (pairs<<1 == sizey) lifting.flush();
+      }
+      float row[] = (float[])done.remove(0);
+      for (int i=0; i<sizex; i++, offset+=pixelStride) data[offset] = row[i];
+      free.add(row);
+    }
+
+    public void row(float row[], int index) {
+      WaveletLifting.inverseLine(kind, row, 0, 1, sizex, line);
+      done.add(row);
+    }
+  }
+
+  /**
+    * Inverse transform of all the bands of an image, written as a raw image
+    * band interleaved by line (BIL), big endian. Integer samples are rounded
+    * and clamped to the range of their type.
+    * @param source where to read the subband lines from
+    * @param out where to write the image
+    * @param dataType DataBuffer.TYPE_BYTE, TYPE_USHORT, TYPE_SHORT,
+    *        TYPE_INT or TYPE_FLOAT
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53 (see <code>WaveletLifting</code>)
+    * @param level number of levels of the transform
+    */
+  public static void inverse(SubbandLineSource source, int width, int height,
+      int bands, DataOutput out, int dataType, int kind, int level)
+      throws IOException {
+    inverse(source, width, height, bands, out, dataType, kind, level, null);
+  }
+
+  /**
+    * Same as above, undoing afterwards the KLT applied to the bands.
+    * @param basis the basis of the KLT, or null if there was none
+    */
+  public static void inverse(SubbandLineSource source, int width, int height,
+      int bands, DataOutput out, int dataType, int kind, int level,
+      SpectralBasis basis) throws IOException {
+    LineIWavelet engines[] = new LineIWavelet[bands];
+    for (int b=0; b<bands; b++)
+      engines[b] = new LineIWavelet(kind, width, height, level, b, source);
+
+    float rows[][] = new float[bands][width];
+    float x[] = new float[bands], y[] = new float[bands];
+    for (int j=0; j<height; j++) {
+      for (int b=0; b<bands; b++) engines[b].readLine(rows[b], 0, 1);
+      if (basis != null) {
+        for (int i=0; i<width; i++) {
+          for (int b=0; b<bands; b++) y[b] = rows[b][i];
+          basis.inverse(y, x);
+          for (int b=0; b<bands; b++) rows[b][i] = x[b];
+        }
+      }
+      for (int b=0; b<bands; b++) writeRaw(out, dataType, rows[b], width);
+    }
+  }
+
+  /** Writes <code>n</code> raw samples */
+  static void writeRaw(DataOutput out, int dataType, float row[], int n)
+      throws IOException {
+    for (int i=0; i<n; i++) {
+      long v = Math.round(row[i]);
+      switch (dataType) {
+      case DataBuffer.TYPE_BYTE:
+        out.writeByte((int)Math.max(0, Math.min(255, v))); break;
+      case DataBuffer.TYPE_USHORT:
+        out.writeShort((int)Math.max(0, Math.min(65535, v))); break;
+      case DataBuffer.TYPE_SHORT:
+        out.writeShort((int)Math.max(Short.MIN_VALUE,
+            Math.min(Short.MAX_VALUE, v))); break;
+      case DataBuffer.TYPE_INT:
+        out.writeInt((int)Math.max(Integer.MIN_VALUE,
+            Math.min(Integer.MAX_VALUE, v))); break;
+      case DataBuffer.TYPE_FLOAT:
+        out.writeFloat(row[i]); break;
+      default:
+        throw new IllegalArgumentException("Unsupported data type: "+dataType);
+      }
+    }
+  }
+}
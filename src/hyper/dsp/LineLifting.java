@@ -0,0 +1,212 @@
+package hyper.dsp;
+
+import java.io.IOException;
+
+/**
+  * The vertical lifting steps of <code>WaveletLifting</code>, done on the fly
+  * over a stream of rows instead of over whole columns.
+  * <p> Every lifting step is a stage that keeps only the rows it still needs
+  * (at most two) and passes the others to the next stage, so a whole chain
+  * holds a handful of rows, whatever the height of the image. Rows are
+  * modified in place and leave the chain in the same order they entered it.
+  * The arithmetic is the same as in <code>WaveletLifting</code>, so are the
+  * results.
+  * @see hyper.dsp.LineWavelet
+  * @see hyper.dsp.LineIWavelet
+  * @author David Gavilan
+  */
+class LineLifting {
+
+  /** Receives the rows once all the steps are done */
+  interface Sink {
+    void row(float row[], int index) throws IOException;
+  }
+
+  private static final int PAIR=0, PREDICT=1, UPDATE=2, PREDICT53=3,
+    UPDATE53=4, SCALE=5;
+
+  private static final float ALPHA = WaveletLifting.ALPHA,
+    BETA = WaveletLifting.BETA, GAMMA = WaveletLifting.GAMMA,
+    DELTA = WaveletLifting.DELTA, K = WaveletLifting.K;
+
+  private Stage first;
+
+  /**
+    * Builds the chain of stages of a wavelet.
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53
+    * @param forward whether to build the forward or the inverse steps
+    * @param width length of the rows
+    * @param sink where to send the rows once processed
+    */
+  LineLifting(int kind, boolean forward, int width, Sink sink) {
+    Stage stages[];
+    switch (kind) {
+    case WaveletLifting.CDF97:
+      if (forward) stages = new Stage[] {
+          new Stage(PREDICT, ALPHA, 1f), new Stage(UPDATE, BETA, 1f),
+          new Stage(PREDICT, GAMMA, 1f), new Stage(UPDATE, DELTA, 1f),
+          new Stage(SCALE, 1f/K, K) };
+      else stages = new Stage[] {
+          new Stage(SCALE, K, 1f/K),
+          new Stage(UPDATE, -DELTA, 1f), new Stage(PREDICT, -GAMMA, 1f),
+          new Stage(UPDATE, -BETA, 1f), new Stage(PREDICT, -ALPHA, 1f) };
+      break;
+    case WaveletLifting.LEGALL53:
+      float sign = forward ? 1f : -1f;
+      if (forward) stages = new Stage[] {
+          new Stage(PREDICT53, sign, 1f), new Stage(UPDATE53, sign, 1f) };
+      else stages = new Stage[] {
+          new Stage(UPDATE53, sign, 1f), new Stage(PREDICT53, sign, 1f) };
+      break;
+    default:
+      // haar and shore, the latter halving the HH quadrant
+      Stage pair = new Stage(PAIR, forward ? 1f : -1f,
+          (kind == WaveletLifting.SHORE) ? 0.5f : 1f);
+      pair.split = width >> 1;
+      stages = new Stage[] {pair};
+    }
+    for (int i=0; i<stages.length-1; i++) stages[i].next = stages[i+1];
+    stages[stages.length-1].sink = sink;
+    first = stages[0];
+  }
+
+  /** Feeds the next row of the stream.
+    * @param row the row, which belongs to the chain until it reaches the sink
+    * @param index index of the row (0, 1, 2, ...)
+    */
+  void push(float row[], int index) throws IOException {
+    first.push(row, index);
+  }
+
+  /** Ends the stream: the remaining rows are mirrored and sent to the sink */
+  void flush() throws IOException {
+    first.flush();
+  }
+
+  /** One lifting step */
+  private static class Stage {
+    int type;
+    /** Lifting coefficient (or sign, or low band scale) */
+    float c;
+    /** High band scale, for columns from <code>split</code> on */
+    float d;
+    int split;
+    Stage next;
+    Sink sink;
+    /** The row still needed as a neighbour, and the one waiting for its
+      * next neighbour */
+    float held[], pend[];
+    int heldIndex, pendIndex;
+
+    Stage(int type, float c, float d) {
+      this.type = type;
+      this.c = c;
+      this.d = d;
+    }
+
+    void emit(float row[], int index) throws IOException {
+      if (next != null) next.push(row, index);
+      else sink.row(row, index);
+    }
+
+    void push(float row[], int index) throws IOException {
+      boolean even = (index & 1) == 0;
+      switch (type) {
+      case SCALE:
+        scale(row, even ? c : d);
+        emit(row, index);
+        break;
+      case PAIR:
+        if (even) {
+          held = row; heldIndex = index;
+        } else {
+          pair(held, row);
+          emit(held, heldIndex);
+          emit(row, index);
+          held = null;
+        }
+        break;
+      case PREDICT:
+      case PREDICT53:
+        // odd rows wait for the next even one
+        if (even) {
+          if (pend != null) {
+            lift(pend, held, row);
+            emit(held, heldIndex);
+            emit(pend, pendIndex);
+            pend = null;
+          }
+          held = row; heldIndex = index;
+        } else {
+          pend = row; pendIndex = index;
+        }
+        break;
+      case UPDATE:
+      case UPDATE53:
+        // even rows wait for the next odd one, the first one is mirrored
+        if (even) {
+          pend = row; pendIndex = index;
+        } else {
+          lift(pend, (held != null) ? held : row, row);
+          if (held != null) emit(held, heldIndex);
+          emit(pend, pendIndex);
+          held = row; heldIndex = index;
+          pend = null;
+        }
+        break;
+      }
+    }
+
+    void flush() throws IOException {
+      if (pend != null) {
+        lift(pend, held, held);
+        emit(held, heldIndex);
+        emit(pend, pendIndex);
+      } else if (held != null) {
+        emit(held, heldIndex);
+      }
+      held = pend = null;
+      if (next != null) next.flush();
+    }
+
+    /** row += step(prev, next) */
+    void lift(float row[], float p[], float n[]) {
+      int width = row.length;
+      switch (type) {
+      case PREDICT:
+      case UPDATE:
+        for (int i=0; i<width; i++) row[i] += c*(p[i]+n[i]);
+        break;
+      case PREDICT53:
+        for (int i=0; i<width; i++)
+          row[i] -= c*(float)Math.floor((p[i]+n[i])*0.5f);
+        break;
+      case UPDATE53:
+        for (int i=0; i<width; i++)
+          row[i] += c*(float)Math.floor((p[i]+n[i]+2f)*0.25f);
+        break;
+      }
+    }
+
+    void pair(float e[], float o[]) {
+      int width = e.length;
+      for (int i=0; i<width; i++) {
+        float ds = (i < split) ? 1f : d;
+        if (c > 0) {
+          float dd = e[i] - o[i];
+          e[i] = o[i] + 0.5f*dd;
+          o[i] = dd * ds;
+        } else {
+          float dd = o[i] / ds;
+          float odd = e[i] - 0.5f*dd;
+          e[i] = odd + dd;
+          o[i] = odd;
+        }
+      }
+    }
+
+    void scale(float row[], float s) {
+      for (int i=0; i<row.length; i++) row[i] *= s;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package hyper.dsp;
+
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.io.*;
+import java.util.Vector;
+
+/**
+  * Line-based forward wavelet transform of one band of an image.
+  *
+  * <p> Scanlines are written one at a time, and subband lines are sent to a
+  * <code>SubbandLineListener</code> as soon as they are complete. Each level
+  * transforms its rows horizontally and pushes them through the vertical
+  * lifting steps (see <code>LineLifting</code>), which keep just the rows they
+  * still need. The low band rows that come out feed the next level. So only
+  * a few rows per level are in memory, not the image nor its coefficients,
+  * and images larger than the heap can be transformed.
+  * <p> The coefficients are exactly those of <code>WaveletOpImage</code> over
+  * a single tile as large as the image. Width and height must be multiples
+  * of <code>2^level</code>.
+  * @see hyper.dsp.LineIWavelet
+  * @see hyper.dsp.WaveletLifting
+  * @author David Gavilan
+  */
+public class LineWavelet {
+
+  protected int kind, level, band;
+  protected SubbandLineListener listener;
+  private Level levels[];
+  private float line[];
+
+  /**
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53 (see <code>WaveletLifting</code>)
+    * @param width width of the image
+    * @param height height of the image
+    * @param level number of levels of the transform
+    * @param band the band of the image, just to tell the listener
+    * @param listener who receives the subband lines
+    */
+  public LineWavelet(int kind, int width, int height, int level, int band,
+      SubbandLineListener listener) {
+    checkSize(width, height, level);
+    this.kind = kind;
+    this.level = level;
+    this.band = band;
+    this.listener = listener;
+    line = new float[width];
+    levels = new Level[level];
+    for (int l=0; l<level; l++) levels[l] = new Level(l, width>>l, height>>l);
+  }
+
+  /** Writes the next scanline of the image.
+    * @param data[] the samples
+    * @param offset where the scanline starts
+    * @param pixelStride the distance between consecutive samples
+    */
+  public void writeLine(float data[], int offset, int pixelStride)
+      throws IOException {
+    levels[0].writeRow(data, offset, pixelStride);
+  }
+
+  /** One level of the transform */
+  private class Level implements LineLifting.Sink {
+    int l, sizex, sizey, halfx, count;
+    LineLifting lifting;
+    /** Rows not in use, so that they are allocated just once */
+    Vector free = new Vector();
+
+    Level(int l, int sizex, int sizey) {
+      this.l = l;
+      this.sizex = sizex;
+      this.sizey = sizey;
+      halfx = sizex >> 1;
+      lifting = new LineLifting(kind, true, sizex, this);
+    }
+
+    void writeRow(float data[], int offset, int pixelStride)
+        throws IOException {
+      float row[] = free.isEmpty() ? new float[sizex] :
+        (float[])free.remove(free.size()-1);
+      WaveletLifting.forwardLine(kind, data, offset, pixelStride,
+          row, 0, 1, sizex, line);
+      lifting.push(row, count++);
+      if (count == sizey) lifting.flush();
+    }
+
+    /** Even rows are [L|HL], odd rows [LH|HH] */
+    public void row(float row[], int index) throws IOException {
+      int sb = 3*(level-1-l);
+      int j = index >> 1;
+      if ((index & 1) == 0) {
+        if (l == level-1) listener.subbandLine(band, 0, j, row, 0, halfx);
+        else levels[l+1].writeRow(row, 0, 1);
+        listener.subbandLine(band, sb+1, j, row, halfx, halfx);
+      } else {
+        listener.subbandLine(band, sb+2, j, row, 0, halfx);
+        listener.subbandLine(band, sb+3, j, row, halfx, halfx);
+      }
+      free.add(row);
+    }
+  }
+
+  /** Throws an IllegalArgumentException if the size doesn't allow
+    * <code>level</code> levels.
+    */
+  static void checkSize(int width, int height, int level) {
+    WaveletLifting.checkSize(width, height, level);
+  }
+
+  /**
+    * Transforms all the bands of an image, reading it by strips of one tile
+    * height, so it's never fully loaded.
+    * @param image the source image
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53 (see <code>WaveletLifting</code>)
+    * @param level number of levels of the transform
+    * @param listener who receives the subband lines
+    */
+  public static void transform(RenderedImage image, int kind,
+      int level, SubbandLineListener listener) throws IOException {
+    int width = image.getWidth(), height = image.getHeight();
+    int bands = image.getSampleModel().getNumBands();
+    int minX = image.getMinX(), minY = image.getMinY();
+
+    LineWavelet engines[] = new LineWavelet[bands];
+    for (int b=0; b<bands; b++)
+      engines[b] = new LineWavelet(kind, width, height, level, b, listener);
+
+    float row[] = new float[width];
+    int strip = image.getTileHeight();
+    for (int y=minY; y<minY+height; y+=strip) {
+      int h = Math.min(strip, minY+height-y);
+      Raster r = image.getData(new Rectangle(minX, y, width, h));
+      for (int j=y; j<y+h; j++) {
+        for (int b=0; b<bands; b++) {
+          r.getSamples(minX, j, width, 1, b, row);
+          engines[b].writeLine(row, 0, 1);
+        }
+      }
+    }
+  }
+
+  /**
+    * Transforms all the bands of a raw image, band interleaved by line (BIL:
+    * every line holds a row of each band, one after the other), big endian.
+    * @param in where to read the image from
+    * @param dataType DataBuffer.TYPE_BYTE, TYPE_USHORT, TYPE_SHORT,
+    *        TYPE_INT or TYPE_FLOAT
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53 (see <code>WaveletLifting</code>)
+    * @param level number of levels of the transform
+    * @param listener who receives the subband lines
+    */
+  public static void transform(DataInput in, int width, int height,
+      int bands, int dataType, int kind, int level,
+      SubbandLineListener listener) throws IOException {
+    LineWavelet engines[] = new LineWavelet[bands];
+    for (int b=0; b<bands; b++)
+      engines[b] = new LineWavelet(kind, width, height, level, b, listener);
+
+    float row[] = new float[width];
+    for (int j=0; j<height; j++) {
+      for (int b=0; b<bands; b++) {
+        readRaw(in, dataType, row, width);
+        engines[b].writeLine(row, 0, 1);
+      }
+    }
+  }
+
+  /** Reads <code>n</code> raw samples */
+  static void readRaw(DataInput in, int dataType, float row[], int n)
+      throws IOException {
+    for (int i=0; i<n; i++) {
+      switch (dataType) {
+      case DataBuffer.TYPE_BYTE:
+        row[i] = in.readUnsignedByte(); break;
+      case DataBuffer.TYPE_USHORT:
+        row[i] = in.readUnsignedShort(); break;
+      case DataBuffer.TYPE_SHORT:
+        row[i] = in.readShort(); break;
+      case DataBuffer.TYPE_INT:
+        row[i] = in.readInt(); break;
+      case DataBuffer.TYPE_FLOAT:
+        row[i] = in.readFloat(); break;
+      default:
+        throw new IllegalArgumentException("Unsupported data type: "+dataType);
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package hyper.dsp;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.Hashtable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import javax.media.jai.PlanarImage;
+
+/**
+  * Runs the wavelet operators in parallel over a <code>ForkJoinPool</code>.
+  *
+  * <p> Bands of a tile are independent, and so are tiles, so each of them is
+  * a task writing its own part of the destination: the output is the same
+  * whatever the parallelism and the order tasks are run in.
+  * <p> There is one pool per parallelism, shared by all the operators. A
+  * parallelism of 1 runs everything in the calling thread, as before, and 0
+  * means as many threads as processors.
+  * @see hyper.dsp.WaveletOpImage
+  * @author David Gavilan
+  */
+public class ParallelWavelet {
+
+  /** The pools created so far, by parallelism */
+  private static final Hashtable pools = new Hashtable();
+
+  /** Something to do with a band */
+  public interface BandTask {
+    public void computeBand(int band);
+  }
+
+  /** Returns the shared pool of a given parallelism.
+    * @param parallelism number of threads, 0 for one per processor
+    */
+  public static ForkJoinPool getPool(int parallelism) {
+    if (parallelism <= 0)
+      parallelism = Runtime.getRuntime().availableProcessors();
+    synchronized (pools) {
+      Integer key = new Integer(parallelism);
+      ForkJoinPool pool = (ForkJoinPool)pools.get(key);
+      if (pool == null) {
+        pool = new ForkJoinPool(parallelism);
+        pools.put(key, pool);
+      }
+      return pool;
+    }
+  }
+
+  /** Runs a task for every band, in parallel if <code>parallelism</code>
+    * is not 1.
+    * @param parallelism number of threads, 0 for one per processor
+    * @param numBands number of bands
+    * @param task what to do with each band
+    */
+  public static void forEachBand(int parallelism, int numBands,
+      BandTask task) {
+    if (parallelism == 1 || numBands <= 1) {
+      for (int k=0; k<numBands; k++) task.computeBand(k);
+      return;
+    }
+    run(parallelism, new Bands(task, 0, numBands));
+  }
+
+  /** Computes some areas of an image in parallel, as <code>getTile</code>
+    * does, so that the tiles of a computed image are computed at the same
+    * time and then used by as many tasks as needed.
+    * @param parallelism number of threads, 0 for one per processor
+    * @param image the image
+    * @param areas which areas, usually tiles
+    * @return their samples, in the same order as the areas
+    * @see hyper.dsp.LabellingJAI#imageLabelling(PlanarImage,int,java.util.Vector[],int)
+    */
+  public static Raster[] getTiles(int parallelism, PlanarImage image,
+      Rectangle areas[]) {
+    Raster tiles[] = new Raster[areas.length];
+    if (parallelism == 1 || areas.length <= 1) {
+      for (int k=0; k<areas.length; k++) tiles[k] = getTile(image, areas[k]);
+    } else {
+      run(parallelism, new Tiles(image, areas, tiles, 0, areas.length));
+    }
+    return tiles;
+  }
+
+  /** Samples of an area of an image: the tile itself if the area is one of
+    * its tiles, or a copy of them otherwise */
+  public static Raster getTile(PlanarImage image, Rectangle area) {
+    int tx = image.XToTileX(area.x), ty = image.YToTileY(area.y);
+    if (image.tileXToX(tx) == area.x && image.tileYToY(ty) == area.y &&
+        image.getTileWidth() == area.width &&
+        image.getTileHeight() == area.height)
+      return image.getTile(tx, ty);
+    return image.getData(area);
+  }
+
+  /** Runs a task in the pool of the given parallelism, or right here if
+    * this thread is already one of that pool. Threads of any other pool
+    * (a parallel stream, the common pool) hand it over, so that the
+    * parallelism asked for is the one used. */
+  static void run(int parallelism, RecursiveAction task) {
+    ForkJoinPool pool = getPool(parallelism);
+    if (ForkJoinTask.getPool() == pool) task.invoke();
+    else pool.invoke(task);
+  }
+
+  /** Splits a range of bands in halves until there's only one */
+  private static class Bands extends RecursiveAction {
+    BandTask task;
+    int from, to;
+
+    Bands(BandTask task, int from, int to) {
+      this.task = task;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to-from == 1) {
+        task.computeBand(from);
+      } else {
+        int mid = (from+to) >>> 1;
+        invokeAll(new Bands(task, from, mid), new Bands(task, mid, to));
+      }
+    }
+  }
+
+  /** Same for areas of an image */
+  private static class Tiles extends RecursiveAction {
+    PlanarImage image;
+    Rectangle areas[];
+    Raster tiles[];
+    int from, to;
+
+    Tiles(PlanarImage image, Rectangle areas[], Raster tiles[], int from,
+        int to) {
+      this.image = image;
+      this.areas = areas;
+      this.tiles = tiles;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to-from == 1) {
+        tiles[from] = getTile(image, areas[from]);
+      } else if (to > from) {
+        int mid = (from+to) >>> 1;
+        invokeAll(new Tiles(image, areas, tiles, from, mid),
+            new Tiles(image, areas, tiles, mid, to));
+      }
+    }
+  }
+}
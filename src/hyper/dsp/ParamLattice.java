@@ -4,6 +4,8 @@ package hyper.dsp;
 /**
  * This class contains the basic definition of a lattice.
  * <P>It also contain methods to operate images using lattices (<code>apply</code>)
+ * <P>Whole subbands are better quantized with the versions taking data
+ * arrays, which reuse a single vector instead of allocating two per lattice.
  *
  *
  * @author David Gavilan
@@ -12,8 +14,17 @@ package hyper.dsp;
 public class ParamLattice {
     /** Integer Lattice */
     public static final int INTEGER=1;
-    /** Dual Lattice */
+    /** Dual Lattice D_n*, the dual of the checkerboard lattice: points with
+      * all coordinates integer or all half an odd integer */
     public static final int DUAL=2;
+    /** Uniform scalar quantizer with a wider zero bin (the dead zone),
+      * sample by sample like <code>INTEGER</code>, whatever the size */
+    public static final int DEADZONE=3;
+    /** Checkerboard lattice D_n: integer points with even sum */
+    public static final int DN=4;
+    /** Gosset lattice E8, the densest in 8 dimensions: D_8 and D_8 shifted
+      * by half in every coordinate. Its size must be 8 */
+    public static final int E8=5;
 
     /** Lattice type: INTEGER, DUAL, ... */
     private int type;
@@ -21,6 +32,12 @@ public class ParamLattice {
     private int width, height;
     /** A factor by which this lattice gets multiplied whenever used */
     private float scaleFactor;
+    /** Width of the zero bin of <code>DEADZONE</code>, in steps: 1 is plain
+      * rounding, greater values send more small coefficients to zero */
+    private float deadZone = 1f;
+    /** Where <code>DEADZONE</code> reconstructs inside a bin, in steps: 0.5
+      * is the middle, smaller values are closer to zero */
+    private float offset = 0.5f;
 
     /** Default constructor creates an Integer lattice 1x1 and no scale factor,
       * that is, scale factor = 1
@@ -36,14 +53,38 @@ public class ParamLattice {
 
     /** Constructs a lattice of the desired type, size and scale factor */
     public ParamLattice(int type, int w, int h, float s) {
+	if (type == E8 && w*h != 8)
+	    throw new IllegalArgumentException("E8 lattices must have 8 samples: "+
+		w+"x"+h);
 	this.type = type;
 	width=w; height=h;
 	scaleFactor=s;
     }
 
+    /** Constructs a <code>DEADZONE</code> quantizer.
+      * @param s the quantization step
+      * @param deadZone width of the zero bin, in steps (1 or more)
+      * @param offset reconstruction point inside a bin, in steps (0 to 1)
+      */
+    public ParamLattice(int type, int w, int h, float s, float deadZone,
+	    float offset) {
+	this(type, w, h, s);
+	this.deadZone = deadZone;
+	this.offset = offset;
+    }
+
     /** Applies quantization function to a vector */
     public float[] apply(float v[]) {
 		float[] res=new float[v.length];
+		apply(v, res);
+		return res;
+    }
+
+    /** Applies quantization function to a vector, storing the result in
+      * <code>res</code>, which may be <code>v</code> itself. Nothing is
+      * allocated.
+      */
+    public void apply(float v[], float res[]) {
 		float half = scaleFactor / 2f;
 
 		switch (type) {
@@ -52,32 +93,213 @@ public class ParamLattice {
 			res[i]=Math.round((v[i]+half)/scaleFactor);
 		    }
 		    break;
+		case DEADZONE:
+		    float zone = deadZone / 2f;
+		    for (int i=0;i<v.length;i++) {
+			float a = Math.abs(v[i])/scaleFactor;
+			float q = (a < zone) ? 0f : (float)Math.floor(a-zone)+1f;
+			res[i] = (v[i] < 0) ? -q : q;
+		    }
+		    break;
+		case DN:
+		case DUAL:
+		case E8:
+		    for (int i=0;i<v.length;i++) res[i]=v[i]/scaleFactor;
+		    nearest(type, res, res);
+		    break;
 		default:
 		    // don't do anything, just cast
 		    for (int i=0;i<v.length;i++) {
 				res[i]=(short)v[i];
 			}
 		}
-		return res;
     }
 
     /** Dequantizes a vector */
     public float[] iapply(float v[]) {
 		float[] res=new float[v.length];
-	
+		iapply(v, res);
+		return res;
+    }
+
+    /** Dequantizes a vector into <code>res</code>, which may be
+      * <code>v</code> itself. Nothing is allocated.
+      */
+    public void iapply(float v[], float res[]) {
 		switch (type) {
 		case INTEGER:
 	 	   for (int i=0;i<v.length;i++) {
 				res[i]=(v[i]*scaleFactor);
 	  	  }
 	  	  break;
+		case DEADZONE:
+		    // |q| -> (zone/2 + |q| - 1 + offset) * scale
+		    float base = (deadZone/2f-1f+offset)*scaleFactor;
+		    for (int i=0;i<v.length;i++) {
+			float q = Math.abs(v[i]);
+			float a = (q == 0f) ? 0f : base+q*scaleFactor;
+			res[i] = (v[i] < 0) ? -a : a;
+		    }
+		    break;
+		case DN:
+		case DUAL:
+		case E8:
+		    float s = scaleFactor / getDenominator(type);
+		    for (int i=0;i<v.length;i++) res[i]=v[i]*s;
+		    break;
 		default:
 	 	   // don't do anything
 	 	   for (int i=0;i<v.length;i++) {
 				res[i]=v[i];
 		    }
 		}
-		return res;
+    }
+
+    /** Lattice points are stored as integers, their coordinates multiplied
+      * by this: 2 for DUAL and E8, whose points may have half-integer
+      * coordinates, 1 for the rest. */
+    public static int getDenominator(int type) {
+	return (type == DUAL || type == E8) ? 2 : 1;
+    }
+
+    /** Finds the point of a lattice closest to a vector, with the fast
+      * decoders of Conway and Sloane: a coset of D_n is decoded by rounding
+      * every coordinate and, if the sum comes out odd, rounding the one
+      * furthest from an integer the other way; DUAL and E8 are the union of
+      * two cosets, so both are decoded and the closest point is kept.
+      * @param type INTEGER, DN, DUAL or E8
+      * @param x the vector, in lattice units (already divided by the scale)
+      * @param res where to store the point, times
+      *        <code>getDenominator(type)</code>. It may be <code>x</code>.
+      */
+    public static void nearest(int type, float x[], float res[]) {
+	switch (type) {
+	case DN:
+	    nearestDn(x, 0f, res, 1);
+	    break;
+	case DUAL:
+	    if (distanceZn(x, 0f) <= distanceZn(x, 0.5f)) {
+		for (int i=0;i<x.length;i++) res[i]=2*Math.round(x[i]);
+	    } else {
+		for (int i=0;i<x.length;i++) res[i]=2*Math.round(x[i]-0.5f)+1;
+	    }
+	    break;
+	case E8:
+	    float shift = (nearestDn(x, 0f, null, 2) <= nearestDn(x, 0.5f, null, 2)) ?
+		0f : 0.5f;
+	    nearestDn(x, shift, res, 2);
+	    break;
+	default:
+	    for (int i=0;i<x.length;i++) res[i]=Math.round(x[i]);
+	}
+    }
+
+    /** Squared distance from a vector to Z^n shifted by <code>shift</code> */
+    private static float distanceZn(float x[], float shift) {
+	float d=0;
+	for (int i=0;i<x.length;i++) {
+	    float e = x[i]-shift-Math.round(x[i]-shift);
+	    d+=e*e;
+	}
+	return d;
+    }
+
+    /** Decodes D_n shifted by <code>shift</code> (0 or 1/2).
+      * @param res where to store the point, or null to just measure the
+      *        distance
+      * @param den the point is stored multiplied by this
+      * @return squared distance from the vector to the point
+      */
+    private static float nearestDn(float x[], float shift, float res[],
+	    int den) {
+	int sum=0, worst=0;
+	float d=0, worstErr=-1f;
+	for (int i=0;i<x.length;i++) {
+	    float t = x[i]-shift;
+	    int r = Math.round(t);
+	    float e = t-r;
+	    sum+=r;
+	    d+=e*e;
+	    if (Math.abs(e) > worstErr) {
+		worstErr=Math.abs(e);
+		worst=i;
+	    }
+	}
+	// odd sum: the worst coordinate is rounded the other way, which adds
+	// (1-|e|)^2 - e^2 to the distance
+	int fix = 0;
+	if ((sum & 1) != 0) {
+	    float t = x[worst]-shift;
+	    fix = (t >= Math.round(t)) ? 1 : -1;
+	    d+=1f-2f*worstErr;
+	}
+	if (res != null) {
+	    int r0 = Math.round(x[worst]-shift)+fix;
+	    for (int i=0;i<x.length;i++) {
+		int r = (i == worst) ? r0 : Math.round(x[i]-shift);
+		res[i] = den*(r+shift);
+	    }
+	}
+	return d;
+    }
+
+    /** Quantizes a subband lattice by lattice, straight from the source
+      * data array to the destination one. Just one vector is allocated,
+      * and reused for every lattice.
+      * @param width width of the subband, a multiple of the lattice width
+      * @param height height of the subband, a multiple of the lattice height
+      */
+    public void apply(float srcData[], float dstData[],
+	    int srcOffset, int dstOffset,
+	    int srcPixelStride, int dstPixelStride,
+	    int srcScanlineStride, int dstScanlineStride,
+	    int width, int height) {
+	subband(false, srcData, dstData, srcOffset, dstOffset,
+		srcPixelStride, dstPixelStride,
+		srcScanlineStride, dstScanlineStride, width, height);
+    }
+
+    /** Dequantizes a subband, like <code>apply</code> */
+    public void iapply(float srcData[], float dstData[],
+	    int srcOffset, int dstOffset,
+	    int srcPixelStride, int dstPixelStride,
+	    int srcScanlineStride, int dstScanlineStride,
+	    int width, int height) {
+	subband(true, srcData, dstData, srcOffset, dstOffset,
+		srcPixelStride, dstPixelStride,
+		srcScanlineStride, dstScanlineStride, width, height);
+    }
+
+    private void subband(boolean inverse, float srcData[], float dstData[],
+	    int sslo, int dslo,
+	    int srcPixelStride, int dstPixelStride,
+	    int srcScanlineStride, int dstScanlineStride,
+	    int width, int height) {
+	float[] v = new float[getSize()];
+	for (int j=0;j<height;j+=this.height) {
+	    int spo = sslo, dpo = dslo;
+	    for (int i=0;i<width;i+=this.width) {
+		// we flatten lattice into a vector
+		int k=0;
+		for (int lj=0, so=spo;lj<this.height;lj++, so+=srcScanlineStride)
+		    for (int li=0, po=so;li<this.width;li++, po+=srcPixelStride)
+			v[k++]=srcData[po];
+
+		if (inverse) iapply(v, v);
+		else apply(v, v);
+
+		// write resulting vector onto destination image
+		k=0;
+		for (int lj=0, so=dpo;lj<this.height;lj++, so+=dstScanlineStride)
+		    for (int li=0, po=so;li<this.width;li++, po+=dstPixelStride)
+			dstData[po]=v[k++];
+
+		spo += srcPixelStride*this.width;
+		dpo += dstPixelStride*this.width;
+	    }
+	    sslo += srcScanlineStride*this.height;
+	    dslo += dstScanlineStride*this.height;
+	}
     }
 
     public int getType() { return type; }
@@ -86,6 +308,8 @@ public class ParamLattice {
 //    public int getLenght() { return length; }
 	public int getSize() { return width*height; }
     public float getScale() { return scaleFactor; }
+    public float getDeadZone() { return deadZone; }
+    public float getOffset() { return offset; }
 
     public void setScale(float f) { scaleFactor=f; }
 
@@ -103,12 +327,21 @@ public class ParamLattice {
 	    return new String("INTEGER");	  
 	case DUAL:
 	    return new String("DUAL");	    
+	case DEADZONE:
+	    return new String("DEADZONE");
+	case DN:
+	    return new String("DN");
+	case E8:
+	    return new String("E8");
 	}
 	return new String("");
     }
 
     /** We redefine toString method to print this object */
     public String toString() {
+	if (type == DEADZONE)
+	    return new String("Lattice("+width+"x"+height+":"+scaleFactor+", "+
+			  getTypeString(type)+" "+deadZone+"/"+offset+", squared)");
 	return new String("Lattice("+width+"x"+height+":"+scaleFactor+", "+
 			  getTypeString(type)+", squared)");
     }
@@ -19,7 +19,9 @@ import java.util.Vector;
   * <LI> In <code>LATTICE</code>, we'll receive a Vector of
   *      <code>ParamLattice</code>s defining a Lattice per subband with different
   *      size and scale values. The quantization algorism will change depending
-  *      on the Lattice type.
+  *      on the Lattice type. <code>ParamLattice.DEADZONE</code> subbands are
+  *      quantized uniformly but with a wider zero bin, so that more small
+  *      coefficients become zero and there is less to code.
   * </UL>
   * @author David Gavilan
   */
@@ -30,6 +32,8 @@ public class QuantizationOpImage extends PointOpImage {
    protected int algorism;
    protected int level;
    protected Vector[] coefs;
+   /** Scales and lattices of every subband, shared by all the tiles */
+   protected QuantizationPlan plan;
 
    /**
      * Layouts the destination image as a short-type image with the same
@@ -37,6 +41,17 @@ public class QuantizationOpImage extends PointOpImage {
      * @param src the source image
      */
    protected static final ImageLayout setLayoutS(RenderedImage src){
+    return setLayoutInt(src, DataBuffer.TYPE_SHORT);
+   }
+
+   /**
+     * Layouts the destination image as an integer image (short or int) with
+     * the same attributes as the source image
+     * @param src the source image
+     * @param dataType DataBuffer.TYPE_SHORT or DataBuffer.TYPE_INT
+     */
+   protected static final ImageLayout setLayoutInt(RenderedImage src,
+       int dataType){
     int bands = src.getSampleModel().getNumBands(); 
     int height = src.getHeight(), tileHeight=src.getTileHeight(); 
     int width = src.getWidth(), tileWidth=src.getTileWidth();
@@ -44,10 +59,10 @@ public class QuantizationOpImage extends PointOpImage {
     int[] order = new int[bands];
     for (int i=0;i<bands;i++) order[i]=i;
     ComponentSampleModel csm = new ComponentSampleModel(
-        DataBuffer.TYPE_SHORT, tileWidth, tileHeight,
+        dataType, tileWidth, tileHeight,
 	tileWidth*bands, bands, order);
 
-    for (int i=0;i<bands;i++) order[i]=16;
+    for (int i=0;i<bands;i++) order[i]=DataBuffer.getDataTypeSize(dataType);
     ColorSpace cs;
     switch (bands) {
     case 1:
@@ -62,7 +77,7 @@ public class QuantizationOpImage extends PointOpImage {
     }
     ComponentColorModel ccm = new ComponentColorModel(
         cs, order,
-	false, false, Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
+	false, false, Transparency.OPAQUE, dataType);
 
     ImageLayout il = new ImageLayout(
 		   src.getTileGridXOffset(),
@@ -90,6 +105,16 @@ public class QuantizationOpImage extends PointOpImage {
       
       this.level = level;
       this.coefs = coefs;
+      compilePlan();
+   }
+
+   /** Builds the quantization plan from <code>coefs</code>, once for all
+     * the tiles.
+     */
+   protected void compilePlan() {
+      if (algorism == SBUNIFORM || algorism == LATTICE)
+         plan = new QuantizationPlan(coefs, getSampleModel().getNumBands(),
+             level);
    }
    
    public void computeRect(Raster sources[], WritableRaster dest,
@@ -218,11 +243,6 @@ public class QuantizationOpImage extends PointOpImage {
 	   int srcScanlineStride, int dstScanlineStride,
 	   int dwidth, int dheight, int band) {
 
-    int subBands = 3*level+1;	   
-    if (coefs == null) iniSBCoefs();
-    else if (coefs[0].size() < subBands) iniSBCoefs();
-    else iniSBCoefs(coefs);
-
     float val, half;
     int height = dheight >> level;
     int firsty = 0, k=0, lev=0, idx=0;
@@ -238,7 +258,7 @@ public class QuantizationOpImage extends PointOpImage {
 	  lev=(il>jl)?il:jl;
 	  k=(il>jl)?0:(il<jl)?1:2;
 	  idx = lev==0?0:3*(lev-1)+k+1;
- 	  val = ((Float)coefs[band].get(idx)).floatValue(); half = val/2f;
+ 	  val = plan.getScale(band, idx); half = val/2f;
 	  for (int i = firstx; i<width; i++) {
 	 
 	   dstData[dstPixelOffset] = (srcData[srcPixelOffset]+half)/val;
@@ -266,18 +286,11 @@ public class QuantizationOpImage extends PointOpImage {
 	   int srcScanlineStride, int dstScanlineStride,
 	   int dwidth, int dheight,int band) {
 
-    int subBands = 3*level+1;	   
-    if (coefs == null) iniLCoefs();
-    else if (coefs[0].size() < subBands) iniLCoefs();
-    else iniLCoefs(coefs);
-
     int height = dheight >> level;
     int width = dwidth >> level;
-//    int firsty = 0, firstx=0, k=0, lev=0, idx=0;
 
     // subband 0
     int idx=0;
-    ParamLattice pml = (ParamLattice)coefs[band].get(idx);
     subBandLattice(
 	   srcData, dstData,
            srcScanlineOffset, dstScanlineOffset,
@@ -285,13 +298,12 @@ public class QuantizationOpImage extends PointOpImage {
 	   srcScanlineStride, dstScanlineStride,
 	   width, height,
 	   0, 0,
-	   pml); idx++;
+	   band, idx++);
 
     // the other subbands
 
     for (int lev=0;lev<level;lev++) {
 	// upper right
-	pml = (ParamLattice)coefs[band].get(idx);
 	subBandLattice(
 	   srcData, dstData,
            srcScanlineOffset, dstScanlineOffset,
@@ -299,9 +311,8 @@ public class QuantizationOpImage extends PointOpImage {
 	   srcScanlineStride, dstScanlineStride,
 	   width, height,
 	   width, 0,
-	   pml); idx++;
+	   band, idx++);
 	// bottom left
-	pml = (ParamLattice)coefs[band].get(idx);
 	subBandLattice(
 	   srcData, dstData,
            srcScanlineOffset, dstScanlineOffset,
@@ -309,9 +320,8 @@ public class QuantizationOpImage extends PointOpImage {
 	   srcScanlineStride, dstScanlineStride,
 	   width, height,
 	   0, height,
-	   pml); idx++;
+	   band, idx++);
 	// bottom right
-	pml = (ParamLattice)coefs[band].get(idx);   
 	subBandLattice(
 	   srcData, dstData,
            srcScanlineOffset, dstScanlineOffset,
@@ -319,7 +329,7 @@ public class QuantizationOpImage extends PointOpImage {
 	   srcScanlineStride, dstScanlineStride,
 	   width, height,
 	   width, height,
-	   pml); idx++;
+	   band, idx++);
 	width <<=1;
 	height <<=1;
     }
@@ -327,7 +337,7 @@ public class QuantizationOpImage extends PointOpImage {
 
    }
    
-   /** Process just a subband with current Lattice */
+   /** Process just a subband with its lattice */
    protected void subBandLattice(
 	   float srcData[], float dstData[],
            int srcScanlineOffset, int dstScanlineOffset,
@@ -335,126 +345,14 @@ public class QuantizationOpImage extends PointOpImage {
 	   int srcScanlineStride, int dstScanlineStride,
 	   int width, int height,
 	   int firstx, int firsty,
-	   ParamLattice pml) {
-
-    int latticeHeight=pml.getHeight(), latticeWidth=pml.getWidth();   
-
-    int sslo = srcScanlineOffset+firstx*srcPixelStride+firsty*srcScanlineStride;
-    int dslo = dstScanlineOffset+firstx*dstPixelStride+firsty*dstScanlineStride;
-    for (int j=0;j<height;j+=latticeHeight) {
-	int spo = sslo, dpo = dslo;
-	for (int i=0;i<width;i+=latticeWidth) {
-	    float[] v = new float[latticeWidth*latticeHeight];
-	    int k=0;
-
-	    for (int lj=0;lj<latticeHeight;lj++) 
-		for (int li=0;li<latticeWidth;li++) {	
-		    int soff=li*srcPixelStride+lj*srcScanlineStride;
-		    // we flatten lattice into a vector
-		    v[k++]=srcData[spo+soff];
-		}
-
-	    // we apply the lattice quantization of this subband
-	    float[] res=pml.apply(v);
-
-	    k=0;
-	    // write resulting vector onto destination image
-	    for (int lj=0;lj<latticeHeight;lj++) 
-		for (int li=0;li<latticeWidth;li++) {
-		    int doff=li*dstPixelStride+lj*srcScanlineStride;
-		    dstData[dpo+doff]=res[k++];
-		}
-	    spo += srcPixelStride*latticeWidth;
-	    dpo += dstPixelStride*latticeWidth;
-	}
-	sslo += srcScanlineStride*latticeHeight;
-	dslo += dstScanlineStride*latticeHeight;
-    
-   }
-   }
+	   int band, int subband) {
 
-
-   /** Default coeficients initialization for SB Uniform Quantization */
-   protected void iniSBCoefs() {
-      int subBands = 3*level+1;
-      int bands=getSampleModel().getNumBands();
-      coefs = new Vector[bands];
-      
-      for (int k=0;k<bands;k++) {
-	  coefs[k] = new Vector(subBands);
-	  coefs[k].add(new Float(1f));
-	  int lev = 2;
-	  for (int i=1;i<subBands;i+=3) {
-	      coefs[k].add(new Float((float)lev)); 
-	      coefs[k].add(new Float((float)lev));
-	      coefs[k].add(new Float((float)lev));
-	      lev <<=1;
-	  }
-      }
-   }
-
-   /** Default coeficients initialization for SB Uniform Quantization
-     * of no initialized coeficients in a Vector
-     * @param cof the Vector to initialize
-     */
-   protected void iniSBCoefs(Vector[] cof) {
-      int subBands = 3*level+1;    
-      int bands=getSampleModel().getNumBands();
-      for (int k=0;k<bands;k++) {
-	  if (((Float)cof[k].get(0)).floatValue()==0f) cof[k].set(0,new Float(1f));
-	  int lev = 2;
-	  for (int i=1;i<subBands;i+=3) {
-	      if (((Float)cof[k].get(i)).floatValue()==0f)
-		  cof[k].set(i,new Float((float)lev));
-	      if (((Float)cof[k].get(i+1)).floatValue()==0f) 
-		  cof[k].set(i+1,new Float((float)lev));
-	      if (((Float)cof[k].get(i+2)).floatValue()==0f)
-		  cof[k].set(i+2,new Float((float)lev));
-	      lev <<=1;
-	  }
-      }
+    plan.quantize(band, subband, srcData, dstData,
+	   srcScanlineOffset+firstx*srcPixelStride+firsty*srcScanlineStride,
+	   dstScanlineOffset+firstx*dstPixelStride+firsty*dstScanlineStride,
+	   srcPixelStride, dstPixelStride,
+	   srcScanlineStride, dstScanlineStride,
+	   width, height);
    }
 
-   /** Initializes the Lattice Coefs like SBUniform */
-    protected void iniLCoefs() {
-      int subBands = 3*level+1;
-      int bands=getSampleModel().getNumBands();
-
-      coefs = new Vector[bands];      
-
-      for (int k=0;k<bands;k++) {
-	  coefs[k] = new Vector(subBands);
-	  int t = ParamLattice.INTEGER;
-	  coefs[k].add(new ParamLattice(t,1,1,1f));
-	  int lev = 2;
-	  for (int i=1;i<subBands;i+=3) {
-	      coefs[k].add(new ParamLattice(t,1,1,(float)lev)); 
-	      coefs[k].add(new ParamLattice(t,1,1,(float)lev));
-	      coefs[k].add(new ParamLattice(t,1,1,(float)lev));
-	      lev <<=1;
-	  }
-      }
-    }
-
-    /** Initializes the Lattice Coefs of no initialized coeficients in a Vector
-      */
-    protected void iniLCoefs(Vector[] cof) {
-      int subBands = 3*level+1;
-      int bands=getSampleModel().getNumBands();
-
-      for (int k=0;k<bands;k++) {
-	  ParamLattice pml = (ParamLattice)cof[k].get(0);
-	  if (pml.getScale()==0f) pml.setScale(1f);     
-	  int lev = 2;
-	  for (int i=1;i<subBands;i+=3) {
-	      pml = (ParamLattice)cof[k].get(i);
-	      if (pml.getScale()==0f) pml.setScale((float)lev); 
-	      pml = (ParamLattice)cof[k].get(i+1);
-	      if (pml.getScale()==0f) pml.setScale((float)lev); 
-	      pml = (ParamLattice)cof[k].get(i+2);
-	      if (pml.getScale()==0f) pml.setScale((float)lev); 
-	      lev <<=1;
-	  }
-      }
-    }
 }
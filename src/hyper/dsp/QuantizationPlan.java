@@ -0,0 +1,273 @@
+package hyper.dsp;
+
+import java.util.Vector;
+
+/**
+  * Quantization parameters of every subband of every band, compiled into
+  * primitive arrays.
+  *
+  * <p> The configuration given to the "Quantization" and "DeQuantization"
+  * operators is a <code>Vector</code> per band, with a <code>Float</code>
+  * (sbuniform) or a <code>ParamLattice</code> (lattice) per subband, some
+  * of them maybe missing or with a null scale. The plan fills in the
+  * default values (a scale of 1 for subband 0 and <code>2^l</code> for
+  * level <code>l</code>, coarsest first) once, when the operator is
+  * created, and keeps scale, reciprocal scale, lattice size and type in
+  * arrays indexed by <code>band*(3*level+1)+subband</code>.
+  * <p> A plan never changes after construction, so the tiles of an image
+  * can be computed concurrently with the same plan. It doesn't modify the
+  * given configuration either.
+  * @see hyper.dsp.QuantizationOpImage
+  * @see hyper.dsp.DeQuantizationOpImage
+  * @author David Gavilan
+  */
+public class QuantizationPlan {
+
+  protected final int bands, level, subBands;
+  protected final float scale[], inverseScale[];
+  protected final int width[], height[], type[];
+  /** Half the zero bin and reconstruction offset of DEADZONE subbands, in
+    * steps */
+  protected final float halfZone[], offset[];
+  /** The lattices themselves, for types that are not quantized sample by
+    * sample */
+  protected final ParamLattice lattices[];
+
+  /**
+    * Compiles a configuration.
+    * @param coefs a <code>Vector</code> per band, with a <code>Float</code>
+    *        or a <code>ParamLattice</code> per subband. May be null, to use
+    *        just default values.
+    * @param bands number of bands of the image
+    * @param level number of levels of the wavelet transform
+    */
+  public QuantizationPlan(Vector[] coefs, int bands, int level) {
+    this.bands = bands;
+    this.level = level;
+    subBands = 3*level+1;
+    int n = bands*subBands;
+    scale = new float[n];
+    inverseScale = new float[n];
+    width = new int[n];
+    height = new int[n];
+    type = new int[n];
+    halfZone = new float[n];
+    offset = new float[n];
+    lattices = new ParamLattice[n];
+
+    boolean given = coefs != null && coefs[0].size() >= subBands;
+    for (int k=0, i=0; k<bands; k++) {
+      for (int sb=0; sb<subBands; sb++, i++) {
+        Object c = (given && k < coefs.length) ? coefs[k].get(sb) : null;
+        ParamLattice pml;
+        if (c instanceof ParamLattice) {
+          pml = (ParamLattice)c;
+        } else {
+          float s = (c == null) ? 0f : ((Number)c).floatValue();
+          pml = new ParamLattice(ParamLattice.INTEGER, 1, 1, s);
+        }
+        float s = pml.getScale();
+        if (s == 0f) s = defaultScale(sb);
+        scale[i] = s;
+        inverseScale[i] = 1f/s;
+        width[i] = pml.getWidth();
+        height[i] = pml.getHeight();
+        type[i] = pml.getType();
+        halfZone[i] = pml.getDeadZone()/2f;
+        offset[i] = pml.getOffset();
+        lattices[i] = new ParamLattice(type[i], width[i], height[i], s,
+            pml.getDeadZone(), pml.getOffset());
+      }
+    }
+  }
+
+  /** Scale of a subband when none is given: 1 for subband 0, 2, 4, 8...
+    * for the following levels */
+  public static float defaultScale(int subband) {
+    return (subband == 0) ? 1f : (float)(2 << ((subband-1)/3));
+  }
+
+  /** Whether the reciprocal of a scale is exact */
+  static boolean isPowerOfTwo(float s) {
+    return (Float.floatToIntBits(s) & 0x007fffff) == 0 && s != 0f;
+  }
+
+  public int getNumBands() { return bands; }
+  public int getLevel() { return level; }
+  public float getScale(int band, int subband) {
+    return scale[band*subBands+subband];
+  }
+  public float getInverseScale(int band, int subband) {
+    return inverseScale[band*subBands+subband];
+  }
+  public int getWidth(int band, int subband) {
+    return width[band*subBands+subband];
+  }
+  public int getHeight(int band, int subband) {
+    return height[band*subBands+subband];
+  }
+  public int getType(int band, int subband) {
+    return type[band*subBands+subband];
+  }
+  /** A copy of the lattice of a subband, with its final scale */
+  public ParamLattice getLattice(int band, int subband) {
+    ParamLattice pml = lattices[band*subBands+subband];
+    return new ParamLattice(pml.getType(), pml.getWidth(), pml.getHeight(),
+        pml.getScale(), pml.getDeadZone(), pml.getOffset());
+  }
+
+  /** Lattice quantization of a subband.
+    * @param band the band of the image
+    * @param subband the subband (see <code>WaveletOpImage</code>)
+    * @param width width of the subband
+    * @param height height of the subband
+    */
+  public void quantize(int band, int subband,
+      float srcData[], float dstData[], int srcOffset, int dstOffset,
+      int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride, int width, int height) {
+    int i = band*subBands+subband;
+    if (type[i] == ParamLattice.DEADZONE) {
+      deadZone(i, srcData, dstData, srcOffset, dstOffset, srcPixelStride,
+          dstPixelStride, srcScanlineStride, dstScanlineStride, width, height);
+      return;
+    }
+    if (type[i] != ParamLattice.INTEGER) {
+      lattices[i].apply(srcData, dstData, srcOffset, dstOffset,
+          srcPixelStride, dstPixelStride, srcScanlineStride, dstScanlineStride,
+          width, height);
+      return;
+    }
+    // the integer lattice is the same sample by sample, whatever its size
+    float s = scale[i], inv = inverseScale[i], half = s/2f;
+    boolean exact = isPowerOfTwo(s);
+    for (int j=0; j<height; j++) {
+      int spo = srcOffset, dpo = dstOffset;
+      if (exact) {
+        // multiplying by the reciprocal gives the same as dividing
+        for (int x=0; x<width; x++) {
+          dstData[dpo] = Math.round((srcData[spo]+half)*inv);
+          spo += srcPixelStride;
+          dpo += dstPixelStride;
+        }
+      } else {
+        for (int x=0; x<width; x++) {
+          dstData[dpo] = Math.round((srcData[spo]+half)/s);
+          spo += srcPixelStride;
+          dpo += dstPixelStride;
+        }
+      }
+      srcOffset += srcScanlineStride;
+      dstOffset += dstScanlineStride;
+    }
+  }
+
+  /** Dead zone quantization of a subband: coefficients within
+    * <code>zone/2</code> steps of zero give 0, the rest
+    * <code>sign(x) (floor(|x|/s - zone/2) + 1)</code> */
+  private void deadZone(int i, float srcData[], float dstData[],
+      int srcOffset, int dstOffset, int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride, int width, int height) {
+    float s = scale[i], inv = inverseScale[i], zone = halfZone[i];
+    boolean exact = isPowerOfTwo(s);
+    for (int j=0; j<height; j++) {
+      int spo = srcOffset, dpo = dstOffset;
+      for (int x=0; x<width; x++) {
+        float v = srcData[spo];
+        float a = exact ? Math.abs(v)*inv : Math.abs(v)/s;
+        float q = (a < zone) ? 0f : (float)Math.floor(a-zone)+1f;
+        dstData[dpo] = (v < 0) ? -q : q;
+        spo += srcPixelStride;
+        dpo += dstPixelStride;
+      }
+      srcOffset += srcScanlineStride;
+      dstOffset += dstScanlineStride;
+    }
+  }
+
+  /** Lattice dequantization of a subband, see <code>quantize</code> */
+  public void dequantize(int band, int subband,
+      float srcData[], float dstData[], int srcOffset, int dstOffset,
+      int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride, int width, int height) {
+    int i = band*subBands+subband;
+    if (type[i] == ParamLattice.DEADZONE) {
+      // q -> sign(q) (zone/2 + |q| - 1 + offset) s
+      float s = scale[i], base = (halfZone[i]-1f+offset[i])*s;
+      for (int j=0; j<height; j++) {
+        int spo = srcOffset, dpo = dstOffset;
+        for (int x=0; x<width; x++) {
+          float q = srcData[spo];
+          dstData[dpo] = (q > 0f) ? base+q*s : (q < 0f) ? q*s-base : 0f;
+          spo += srcPixelStride;
+          dpo += dstPixelStride;
+        }
+        srcOffset += srcScanlineStride;
+        dstOffset += dstScanlineStride;
+      }
+      return;
+    }
+    if (type[i] != ParamLattice.INTEGER) {
+      lattices[i].iapply(srcData, dstData, srcOffset, dstOffset,
+          srcPixelStride, dstPixelStride, srcScanlineStride, dstScanlineStride,
+          width, height);
+      return;
+    }
+    float s = scale[i];
+    for (int j=0; j<height; j++) {
+      int spo = srcOffset, dpo = dstOffset;
+      for (int x=0; x<width; x++) {
+        dstData[dpo] = srcData[spo]*s;
+        spo += srcPixelStride;
+        dpo += dstPixelStride;
+      }
+      srcOffset += srcScanlineStride;
+      dstOffset += dstScanlineStride;
+    }
+  }
+
+  /** Quantizes, in place, all the subbands of a band of a wavelet
+    * transformed tile.
+    * @param band the band of the image
+    * @param data[] the wavelet coefficients of the band
+    * @param width width of the tile
+    * @param height height of the tile
+    */
+  public void quantizeTile(int band, float data[], int offset,
+      int pixelStride, int scanlineStride, int width, int height) {
+    tile(false, band, data, offset, pixelStride, scanlineStride,
+        width, height);
+  }
+
+  /** Dequantizes, in place, all the subbands of a band of a tile, see
+    * <code>quantizeTile</code> */
+  public void dequantizeTile(int band, float data[], int offset,
+      int pixelStride, int scanlineStride, int width, int height) {
+    tile(true, band, data, offset, pixelStride, scanlineStride,
+        width, height);
+  }
+
+  /** Walks the subbands of a tile in order: subband 0 and then upper right,
+    * bottom left and bottom right of each level, the coarsest first */
+  private void tile(boolean inverse, int band, float data[], int offset,
+      int pixelStride, int scanlineStride, int width, int height) {
+    int w = width >> level, h = height >> level;
+    for (int sb=0; sb<subBands; sb++) {
+      int o = (sb == 0) ? 0 : (sb-1)%3 + 1;
+      int firstx = (o == 1 || o == 3) ? w : 0;
+      int firsty = (o >= 2) ? h : 0;
+      int start = offset+firstx*pixelStride+firsty*scanlineStride;
+      if (inverse) {
+        dequantize(band, sb, data, data, start, start, pixelStride,
+            pixelStride, scanlineStride, scanlineStride, w, h);
+      } else {
+        quantize(band, sb, data, data, start, start, pixelStride,
+            pixelStride, scanlineStride, scanlineStride, w, h);
+      }
+      if (o == 3) {
+        w <<= 1;
+        h <<= 1;
+      }
+    }
+  }
+}
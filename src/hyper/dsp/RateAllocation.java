@@ -0,0 +1,393 @@
+package hyper.dsp;
+
+import java.awt.image.*;
+import java.util.Vector;
+import java.util.concurrent.RecursiveAction;
+
+/**
+  * Rate-distortion optimized choice of the quantization scale of every
+  * subband, for a target bit rate or PSNR.
+  *
+  * <p> The statistics of each subband (number of coefficients, mean, mean
+  * absolute value and variance) are measured in a single pass over the
+  * tiles of the output of "Wavelet", in parallel, and then a model gives
+  * the rate and distortion of each subband for any scale:
+  * <UL>
+  * <LI> detail subbands are taken as Laplacian, quantized by rounding, whose
+  *      entropy and mean squared error have closed forms;
+  * <LI> subband 0 uses the high resolution approximation,
+  *      <code>h - log2(scale)</code> bits and <code>scale^2/12</code> of
+  *      error.
+  * </UL>
+  * The error of each subband is weighted by the energy its coefficients
+  * have once the inverse wavelet is done (measured by inverting an impulse),
+  * since filters are not orthonormal. For a Lagrange multiplier
+  * <code>lambda</code>, each subband takes the scale (among powers of
+  * <code>2^(1/8)</code>) minimizing <code>distortion + lambda rate</code>,
+  * and <code>lambda</code> is searched by bisection until the target is met.
+  * <p> The models are those of a scalar quantizer with the zero bin as wide
+  * as the rest, so the configurations given use <code>DEADZONE</code>
+  * quantizers by default, whose dead zone is 1.
+  * @see hyper.dsp.ParamLattice#DEADZONE
+  * @author David Gavilan
+  */
+public class RateAllocation {
+
+  /** Tiles per task when measuring the subbands */
+  private static final int TILES_PER_TASK = 4;
+  /** Candidate scales are <code>2^(k/STEPS_PER_OCTAVE)</code> */
+  private static final int STEPS_PER_OCTAVE = 8;
+  /** From 1/4 to 65536 */
+  private static final int MIN_STEP = -2*STEPS_PER_OCTAVE,
+    MAX_STEP = 16*STEPS_PER_OCTAVE;
+  /** Bisection iterations over log(lambda) */
+  private static final int ITERATIONS = 60;
+
+  protected int bands, level, subBands;
+  /** Pixels of the image */
+  protected long pixels;
+  /** Statistics of each subband, indexed <code>band*subBands+subband</code> */
+  protected long count[];
+  protected double mean[], meanAbs[], variance[];
+  /** Energy in the image of a unit coefficient of each subband (the same
+    * for all the bands) */
+  protected double weights[];
+  /** Weighted distortion and bits per coefficient of each candidate scale
+    * of each subband */
+  private double cost[][], bits[][];
+
+  /**
+    * Constructs an allocation from the statistics of the subbands.
+    * @param count number of coefficients of each subband
+    * @param mean mean of each subband
+    * @param meanAbs mean absolute value of each subband
+    * @param variance variance of each subband
+    * @param weights energy of a unit coefficient of each subband after the
+    *        inverse wavelet, <code>3*level+1</code> values
+    * @param pixels pixels of the image
+    */
+  public RateAllocation(long count[], double mean[], double meanAbs[],
+      double variance[], double weights[], int bands, int level,
+      long pixels) {
+    this.bands = bands;
+    this.level = level;
+    this.subBands = 3*level+1;
+    this.count = count;
+    this.mean = mean;
+    this.meanAbs = meanAbs;
+    this.variance = variance;
+    this.weights = weights;
+    this.pixels = pixels;
+
+    int n = bands*subBands, steps = MAX_STEP-MIN_STEP+1;
+    cost = new double[n][steps];
+    bits = new double[n][steps];
+    for (int i=0; i<n; i++) {
+      double w = weights[i % subBands];
+      for (int k=0; k<steps; k++) {
+        double delta = getStep(k);
+        cost[i][k] = w*distortion(i, delta);
+        bits[i][k] = rate(i, delta);
+      }
+    }
+  }
+
+  /**
+    * Measures the subbands of a wavelet transformed image.
+    * @param coefs the output of "Wavelet", its tiles are read once
+    * @param algorism the wavelet used
+    * @param level number of levels of the wavelet
+    * @param parallelism number of threads, 0 for one per processor
+    */
+  public static RateAllocation measure(RenderedImage coefs, String algorism,
+      int level, int parallelism) {
+    int bands = coefs.getSampleModel().getNumBands();
+    int subBands = 3*level+1;
+    Statistics task = new Statistics(coefs, level, 0,
+        coefs.getNumXTiles()*coefs.getNumYTiles());
+    ParallelWavelet.run(parallelism, task);
+
+    int n = bands*subBands;
+    double mean[] = new double[n], meanAbs[] = new double[n];
+    double variance[] = new double[n];
+    for (int i=0; i<n; i++) {
+      long c = Math.max(1, task.count[i]);
+      mean[i] = task.sum[i]/c;
+      meanAbs[i] = task.sumAbs[i]/c;
+      variance[i] = Math.max(0, task.sumSq[i]/c - mean[i]*mean[i]);
+    }
+    return new RateAllocation(task.count, mean, meanAbs, variance,
+        synthesisWeights(algorism, level), bands, level,
+        (long)coefs.getWidth()*coefs.getHeight());
+  }
+
+  /** Energy in the image of a unit coefficient in each subband, found by
+    * inverting an impulse in the middle of the subband.
+    * @return <code>3*level+1</code> weights, in subband order
+    */
+  public static double[] synthesisWeights(String algorism, int level) {
+    int kind = GlobalWaveletOpImage.getKind(algorism);
+    int size = 16 << level;
+    int subBands = 3*level+1;
+    double w[] = new double[subBands];
+    float data[] = new float[size*size];
+    int sw = size >> level;
+    for (int sb=0; sb<subBands; sb++) {
+      int o = (sb == 0) ? 0 : (sb-1)%3 + 1;
+      int firstx = (o == 1 || o == 3) ? sw : 0;
+      int firsty = (o >= 2) ? sw : 0;
+      java.util.Arrays.fill(data, 0f);
+      data[(firsty+sw/2)*size + firstx+sw/2] = 1f;
+      WaveletLifting.inverse(kind, data, 0, 1, size, size, size, level);
+      double e = 0;
+      for (int i=0; i<data.length; i++) e += data[i]*data[i];
+      w[sb] = e;
+      if (o == 3) sw <<= 1;
+    }
+    return w;
+  }
+
+  /** Candidate scale number <code>k</code> */
+  private static double getStep(int k) {
+    return Math.pow(2, (double)(k+MIN_STEP)/STEPS_PER_OCTAVE);
+  }
+
+  /** Binary entropy, in bits */
+  private static double h2(double p) {
+    if (p <= 0 || p >= 1) return 0;
+    return -(p*Math.log(p) + (1-p)*Math.log(1-p)) / Math.log(2);
+  }
+
+  /** Estimated bits per coefficient of a subband quantized with a step */
+  protected double rate(int i, double delta) {
+    if (i % subBands == 0) {
+      if (variance[i] <= 0) return 0;
+      double h = 0.5*Math.log(2*Math.PI*Math.E*variance[i])/Math.log(2);
+      return Math.max(0, h - Math.log(delta)/Math.log(2));
+    }
+    double b = meanAbs[i];
+    if (b <= 0) return 0;
+    if (delta < 1e-3*b) return Math.log(2*Math.E*b/delta)/Math.log(2);
+    // zero with probability 1-p, the magnitude of the rest is geometric
+    // with ratio theta, plus a sign bit
+    double theta = Math.exp(-delta/b), p = Math.sqrt(theta);
+    return h2(1-p) + p*(1 + h2(theta)/(1-theta));
+  }
+
+  /** Estimated mean squared error of a subband quantized with a step */
+  protected double distortion(int i, double delta) {
+    if (i % subBands == 0) return Math.min(delta*delta/12, variance[i]);
+    double b = meanAbs[i];
+    if (b <= 0) return 0;
+    if (delta < 1e-3*b) return delta*delta/12;
+    double theta = Math.exp(-delta/b), p = Math.sqrt(theta);
+    double a = delta/(2*b);
+    // the zero bin, and the other bins (all alike, the Laplacian being
+    // memoryless) reconstructed at their middle
+    double d0 = b*b*(2 - Math.exp(-a)*(a*a+2*a+2));
+    double m1 = (b - theta*(b+delta)) / (1-theta);
+    double m2 = (2*b*b - theta*(delta*delta+2*b*delta+2*b*b)) / (1-theta);
+    return d0 + p*(m2 - delta*m1 + delta*delta/4);
+  }
+
+  /** Chooses the best scale of each subband for a multiplier.
+    * @param choice where to store the candidate chosen for each subband
+    * @return the total bits and the total weighted squared error
+    */
+  private double[] allocate(double lambda, int choice[]) {
+    double r = 0, d = 0;
+    for (int i=0; i<choice.length; i++) {
+      int best = 0;
+      double min = Double.MAX_VALUE;
+      for (int k=0; k<cost[i].length; k++) {
+        double j = cost[i][k] + lambda*bits[i][k];
+        if (j < min) {
+          min = j;
+          best = k;
+        }
+      }
+      choice[i] = best;
+      r += count[i]*bits[i][best];
+      d += count[i]*cost[i][best];
+    }
+    return new double[] {r, d};
+  }
+
+  /** Searches the multiplier giving the highest quality within a rate, or
+    * the lowest rate within a distortion.
+    * @param byRate whether the target is a number of bits
+    * @param target total bits or total squared error
+    */
+  private int[] search(boolean byRate, double target) {
+    int choice[] = new int[bands*subBands];
+    // lambda from 2^-40 to 2^40; rate decreases with lambda, distortion
+    // increases
+    double lo = -40, hi = 40;
+    for (int it=0; it<ITERATIONS; it++) {
+      double mid = (lo+hi)/2;
+      double rd[] = allocate(Math.pow(2, mid), choice);
+      boolean ok = byRate ? rd[0] <= target : rd[1] <= target;
+      if (byRate == ok) hi = mid;
+      else lo = mid;
+    }
+    allocate(Math.pow(2, byRate ? hi : lo), choice);
+    return choice;
+  }
+
+  /** Scales for a bit rate.
+    * @param bitsPerPixel bits per pixel, all the bands together
+    * @return a <code>Vector</code> per band with a
+    *         <code>ParamLattice</code> per subband
+    */
+  public Vector[] forRate(double bitsPerPixel) {
+    return forRate(bitsPerPixel,
+        new ParamLattice(ParamLattice.DEADZONE, 1, 1, 1f));
+  }
+
+  /** Scales for a bit rate, for lattices of a given type and size.
+    * @param template type, size, dead zone and offset of the lattices
+    */
+  public Vector[] forRate(double bitsPerPixel, ParamLattice template) {
+    return toConfig(search(true, bitsPerPixel*pixels), template);
+  }
+
+  /** Scales for a PSNR.
+    * @param psnr target PSNR, in dB
+    * @param peak peak value of the image (255 for 8 bits)
+    */
+  public Vector[] forPSNR(double psnr, double peak) {
+    return forPSNR(psnr, peak,
+        new ParamLattice(ParamLattice.DEADZONE, 1, 1, 1f));
+  }
+
+  /** Scales for a PSNR, for lattices of a given type and size */
+  public Vector[] forPSNR(double psnr, double peak, ParamLattice template) {
+    double mse = peak*peak / Math.pow(10, psnr/10);
+    return toConfig(search(false, mse*pixels*bands), template);
+  }
+
+  /** Estimated bits per pixel and PSNR of a configuration given by this
+    * allocation.
+    * @return bits per pixel and PSNR, in dB
+    */
+  public double[] estimate(Vector[] coefs, double peak) {
+    double r = 0, d = 0;
+    for (int k=0, i=0; k<bands; k++) {
+      for (int sb=0; sb<subBands; sb++, i++) {
+        double s = ((ParamLattice)coefs[k].get(sb)).getScale();
+        r += count[i]*rate(i, s);
+        d += count[i]*weights[sb]*distortion(i, s);
+      }
+    }
+    double mse = d/((double)pixels*bands);
+    return new double[] {r/pixels, 10*Math.log(peak*peak/mse)/Math.log(10)};
+  }
+
+  private Vector[] toConfig(int choice[], ParamLattice template) {
+    Vector[] coefs = new Vector[bands];
+    for (int k=0, i=0; k<bands; k++) {
+      coefs[k] = new Vector();
+      for (int sb=0; sb<subBands; sb++, i++) {
+        coefs[k].add(new ParamLattice(template.getType(),
+            template.getWidth(), template.getHeight(),
+            (float)getStep(choice[i]), template.getDeadZone(),
+            template.getOffset()));
+      }
+    }
+    return coefs;
+  }
+
+  public int getNumBands() { return bands; }
+  public int getLevel() { return level; }
+  public long getCount(int band, int subband) {
+    return count[band*subBands+subband];
+  }
+  public double getMean(int band, int subband) {
+    return mean[band*subBands+subband];
+  }
+  public double getMeanAbs(int band, int subband) {
+    return meanAbs[band*subBands+subband];
+  }
+  public double getVariance(int band, int subband) {
+    return variance[band*subBands+subband];
+  }
+  public double getWeight(int subband) { return weights[subband]; }
+
+  /** Sums of the coefficients of each subband over a range of tiles */
+  private static class Statistics extends RecursiveAction {
+    RenderedImage image;
+    int level, from, to;
+    long count[];
+    double sum[], sumAbs[], sumSq[];
+
+    Statistics(RenderedImage image, int level, int from, int to) {
+      this.image = image;
+      this.level = level;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to-from > TILES_PER_TASK) {
+        int mid = (from+to) >>> 1;
+        Statistics left = new Statistics(image, level, from, mid);
+        Statistics right = new Statistics(image, level, mid, to);
+        invokeAll(left, right);
+        count = left.count;
+        sum = left.sum;
+        sumAbs = left.sumAbs;
+        sumSq = left.sumSq;
+        for (int i=0; i<count.length; i++) {
+          count[i] += right.count[i];
+          sum[i] += right.sum[i];
+          sumAbs[i] += right.sumAbs[i];
+          sumSq[i] += right.sumSq[i];
+        }
+        return;
+      }
+
+      int bands = image.getSampleModel().getNumBands();
+      int subBands = 3*level+1;
+      int n = bands*subBands;
+      count = new long[n];
+      sum = new double[n];
+      sumAbs = new double[n];
+      sumSq = new double[n];
+      int tw = image.getTileWidth(), th = image.getTileHeight();
+      float row[] = new float[tw];
+      int nx = image.getNumXTiles();
+      for (int t=from; t<to; t++) {
+        Raster tile = image.getTile(image.getMinTileX()+t%nx,
+            image.getMinTileY()+t/nx);
+        int tx = tile.getMinX(), ty = tile.getMinY();
+        // tiles may go beyond the image
+        int x1 = Math.min(tx+tw, image.getMinX()+image.getWidth());
+        int y1 = Math.min(ty+th, image.getMinY()+image.getHeight());
+        for (int k=0; k<bands; k++) {
+          int w = tw >> level, h = th >> level;
+          for (int sb=0; sb<subBands; sb++) {
+            int o = (sb == 0) ? 0 : (sb-1)%3 + 1;
+            int sx = tx + ((o == 1 || o == 3) ? w : 0);
+            int sy = ty + ((o >= 2) ? h : 0);
+            int ex = Math.min(sx+w, x1), ey = Math.min(sy+h, y1);
+            int i = k*subBands+sb;
+            for (int y=sy; y<ey && sx<ex; y++) {
+              tile.getSamples(sx, y, ex-sx, 1, k, row);
+              for (int x=0; x<ex-sx; x++) {
+                double v = row[x];
+                sum[i] += v;
+                sumAbs[i] += Math.abs(v);
+                sumSq[i] += v*v;
+              }
+              count[i] += ex-sx;
+            }
+            if (o == 3) {
+              w <<= 1;
+              h <<= 1;
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package hyper.dsp;
+
+import java.awt.image.*;
+import java.io.IOException;
+import java.util.concurrent.RecursiveAction;
+import org.freehep.util.io.*;
+
+/**
+  * Karhunen-Loeve basis (principal components) of the spectra of an image,
+  * used by the "KLT" operator to decorrelate its bands before the wavelet.
+  *
+  * <p> The covariance of the bands is computed in a single pass over the
+  * tiles of the image, in parallel: every task accumulates the sums of a
+  * range of tiles in its own arrays, reading rows into a buffer allocated
+  * once, and the results are added when the tasks join. Samples are shifted
+  * by the first pixel of the image before being accumulated, so that
+  * the sums stay small and the covariance accurate.
+  * <p> The basis are the eigenvectors of the covariance (found by the cyclic
+  * Jacobi method), sorted by decreasing eigenvalue: the first component has
+  * the highest variance.
+  * <p> A basis can be written to a stream header and read back by the
+  * decoder, to undo the projection. Only the stream of
+  * <code>LatticeLineCoder</code> does so.
+  * @see hyper.dsp.KLTOpImage
+  * @author David Gavilan
+  */
+public class SpectralBasis {
+
+  /** Tiles per task when accumulating the covariance */
+  private static final int TILES_PER_TASK = 4;
+  /** Jacobi sweeps before giving up (it usually converges in less than 10) */
+  private static final int MAX_SWEEPS = 50;
+
+  protected int bands;
+  /** Mean of each band */
+  protected float mean[];
+  /** One component per row, the one with highest variance first */
+  protected float basis[][];
+  /** Variance of each component */
+  protected double eigenvalues[];
+
+  /** Constructs a basis from its mean and components */
+  public SpectralBasis(float mean[], float basis[][], double eigenvalues[]) {
+    this.bands = mean.length;
+    this.mean = mean;
+    this.basis = basis;
+    this.eigenvalues = eigenvalues;
+  }
+
+  public int getNumBands() { return bands; }
+  public float[] getMean() { return mean; }
+  /** @return one component per row */
+  public float[][] getBasis() { return basis; }
+  /** @return the variance of each component, or null if it was read from
+    *         a stream */
+  public double[] getEigenvalues() { return eigenvalues; }
+
+  /** Projects a spectrum over the basis.
+    * @param x[] the spectrum, <code>bands</code> samples
+    * @param y[] where to store the components
+    */
+  public void forward(float x[], float y[]) {
+    for (int c=0; c<bands; c++) {
+      float row[] = basis[c];
+      double s = 0;
+      for (int b=0; b<bands; b++) s += row[b]*(x[b]-mean[b]);
+      y[c] = (float)s;
+    }
+  }
+
+  /** Inverse of <code>forward</code> */
+  public void inverse(float y[], float x[]) {
+    for (int b=0; b<bands; b++) x[b] = mean[b];
+    for (int c=0; c<bands; c++) {
+      float row[] = basis[c];
+      float v = y[c];
+      for (int b=0; b<bands; b++) x[b] += row[b]*v;
+    }
+  }
+
+  /**
+    * Computes the basis of an image.
+    * @param image the source image, its tiles are read once
+    * @param parallelism number of threads, 0 for one per processor
+    */
+  public static SpectralBasis estimate(RenderedImage image, int parallelism) {
+    int n = image.getSampleModel().getNumBands();
+    int nx = image.getNumXTiles(), ny = image.getNumYTiles();
+
+    double shift[] = new double[n];
+    image.getData(new java.awt.Rectangle(image.getMinX(), image.getMinY(),
+        1, 1)).getPixel(image.getMinX(), image.getMinY(), shift);
+
+    Covariance task = new Covariance(image, shift, 0, nx*ny);
+    ParallelWavelet.run(parallelism, task);
+
+    // unbiased covariance of the shifted samples: the shift doesn't change it
+    double count = task.count;
+    double cov[][] = new double[n][n];
+    float mean[] = new float[n];
+    for (int b=0, k=0; b<n; b++) {
+      mean[b] = (float)(shift[b] + task.sum[b]/count);
+      for (int c=b; c<n; c++, k++) {
+        double v = (task.cross[k] - task.sum[b]*task.sum[c]/count) /
+          Math.max(1, count-1);
+        cov[b][c] = v;
+        cov[c][b] = v;
+      }
+    }
+
+    double vectors[][] = new double[n][n];
+    double values[] = jacobi(cov, vectors);
+
+    // sort components by decreasing variance
+    Integer order[] = new Integer[n];
+    for (int i=0; i<n; i++) order[i] = new Integer(i);
+    final double fvalues[] = values;
+    java.util.Arrays.sort(order, new java.util.Comparator() {
+      public int compare(Object a, Object b) {
+        return Double.compare(fvalues[((Integer)b).intValue()],
+            fvalues[((Integer)a).intValue()]);
+      }
+    });
+    float basis[][] = new float[n][n];
+    double eigenvalues[] = new double[n];
+    for (int c=0; c<n; c++) {
+      int i = order[c].intValue();
+      eigenvalues[c] = values[i];
+      for (int b=0; b<n; b++) basis[c][b] = (float)vectors[b][i];
+    }
+    return new SpectralBasis(mean, basis, eigenvalues);
+  }
+
+  /**
+    * Eigenvalues and eigenvectors of a symmetric matrix, by the cyclic Jacobi
+    * method. The matrix is destroyed.
+    * @param a[][] the matrix
+    * @param v[][] where to store the eigenvectors, one per column
+    * @return the eigenvalues
+    */
+  public static double[] jacobi(double a[][], double v[][]) {
+    int n = a.length;
+    for (int i=0; i<n; i++)
+      for (int j=0; j<n; j++) v[i][j] = (i == j) ? 1 : 0;
+
+    for (int sweep=0; sweep<MAX_SWEEPS; sweep++) {
+      double off = 0, diag = 0;
+      for (int p=0; p<n; p++) {
+        diag += a[p][p]*a[p][p];
+        for (int q=p+1; q<n; q++) off += a[p][q]*a[p][q];
+      }
+      if (off <= 1e-24*diag || off == 0) break;
+
+      for (int p=0; p<n; p++) {
+        for (int q=p+1; q<n; q++) {
+          double apq = a[p][q];
+          if (apq == 0) continue;
+          // rotation that zeroes a[p][q]
+          double theta = (a[q][q]-a[p][p]) / (2*apq);
+          double t = ((theta >= 0) ? 1 : -1) /
+            (Math.abs(theta) + Math.sqrt(theta*theta+1));
+          double c = 1/Math.sqrt(t*t+1), s = t*c;
+          for (int k=0; k<n; k++) {
+            double akp = a[k][p], akq = a[k][q];
+            a[k][p] = c*akp - s*akq;
+            a[k][q] = s*akp + c*akq;
+          }
+          for (int k=0; k<n; k++) {
+            double apk = a[p][k], aqk = a[q][k];
+            a[p][k] = c*apk - s*aqk;
+            a[q][k] = s*apk + c*aqk;
+          }
+          for (int k=0; k<n; k++) {
+            double vkp = v[k][p], vkq = v[k][q];
+            v[k][p] = c*vkp - s*vkq;
+            v[k][q] = s*vkp + c*vkq;
+          }
+        }
+      }
+    }
+    double d[] = new double[n];
+    for (int i=0; i<n; i++) d[i] = a[i][i];
+    return d;
+  }
+
+  /** Writes the mean and the components, as 32 bits floats. The number of
+    * bands is not written, the reader must know it.
+    */
+  public void write(BitOutputStream out) throws IOException {
+    for (int b=0; b<bands; b++) writeFloat(out, mean[b]);
+    for (int c=0; c<bands; c++)
+      for (int b=0; b<bands; b++) writeFloat(out, basis[c][b]);
+  }
+
+  /** Reads a basis written by <code>write</code> */
+  public static SpectralBasis read(BitInputStream in, int bands)
+      throws IOException {
+    float mean[] = new float[bands];
+    float basis[][] = new float[bands][bands];
+    for (int b=0; b<bands; b++) mean[b] = readFloat(in);
+    for (int c=0; c<bands; c++)
+      for (int b=0; b<bands; b++) basis[c][b] = readFloat(in);
+    return new SpectralBasis(mean, basis, null);
+  }
+
+  private static void writeFloat(BitOutputStream out, float f)
+      throws IOException {
+    out.writeUBits(Float.floatToIntBits(f) & 0xffffffffL, 32);
+  }
+
+  private static float readFloat(BitInputStream in) throws IOException {
+    return Float.intBitsToFloat((int)in.readUBits(32));
+  }
+
+  /** Sums of the shifted samples and their products over a range of tiles */
+  private static class Covariance extends RecursiveAction {
+    RenderedImage image;
+    double shift[];
+    int from, to;
+    double sum[], cross[];
+    long count;
+
+    Covariance(RenderedImage image, double shift[], int from, int to) {
+      this.image = image;
+      this.shift = shift;
+      this.from = from;
+      this.to = to;
+    }
+
+    protected void compute() {
+      if (to-from > TILES_PER_TASK) {
+        int mid = (from+to) >>> 1;
+        Covariance left = new Covariance(image, shift, from, mid);
+        Covariance right = new Covariance(image, shift, mid, to);
+        invokeAll(left, right);
+        sum = left.sum;
+        cross = left.cross;
+        count = left.count + right.count;
+        for (int i=0; i<sum.length; i++) sum[i] += right.sum[i];
+        for (int i=0; i<cross.length; i++) cross[i] += right.cross[i];
+        return;
+      }
+
+      int n = shift.length;
+      sum = new double[n];
+      cross = new double[n*(n+1)/2];
+      double row[] = new double[image.getTileWidth()*n];
+      double x[] = new double[n];
+      int nx = image.getNumXTiles();
+      for (int t=from; t<to; t++) {
+        Raster tile = image.getTile(image.getMinTileX()+t%nx,
+            image.getMinTileY()+t/nx);
+        // tiles may go beyond the image
+        int x0 = Math.max(tile.getMinX(), image.getMinX());
+        int y0 = Math.max(tile.getMinY(), image.getMinY());
+        int x1 = Math.min(tile.getMinX()+tile.getWidth(),
+            image.getMinX()+image.getWidth());
+        int y1 = Math.min(tile.getMinY()+tile.getHeight(),
+            image.getMinY()+image.getHeight());
+        for (int y=y0; y<y1; y++) {
+          tile.getPixels(x0, y, x1-x0, 1, row);
+          for (int p=0; p<(x1-x0)*n; p+=n) {
+            for (int b=0; b<n; b++) {
+              x[b] = row[p+b] - shift[b];
+              sum[b] += x[b];
+            }
+            for (int b=0, k=0; b<n; b++) {
+              double xb = x[b];
+              for (int c=b; c<n; c++) cross[k++] += xb*x[c];
+            }
+          }
+          count += x1-x0;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package hyper.dsp;
+
+/**
+  * Receives the lines of the subbands of a wavelet transform as soon as
+  * they are complete.
+  * @see hyper.dsp.LineWavelet
+  * @author David Gavilan
+  */
+public interface SubbandLineListener {
+
+  /**
+    * A line of a subband is complete. Lines of each subband arrive in order,
+    * but lines of different subbands (and bands) are interleaved.
+    * @param band the band of the image
+    * @param subband index of the subband, ordered as in <code>WaveletOpImage</code>
+    * @param line index of the line inside the subband
+    * @param data[] the coefficients, only valid during this call
+    * @param offset where the line starts in <code>data</code>
+    * @param length number of coefficients of the line
+    * @see hyper.dsp.WaveletOpImage
+    */
+  public void subbandLine(int band, int subband, int line,
+      float data[], int offset, int length) throws java.io.IOException;
+}
@@ -0,0 +1,24 @@
+package hyper.dsp;
+
+/**
+  * Gives the lines of the subbands of a wavelet transform when the inverse
+  * transform needs them.
+  * @see hyper.dsp.LineIWavelet
+  * @author David Gavilan
+  */
+public interface SubbandLineSource {
+
+  /**
+    * Reads a line of a subband. Lines of each subband are asked in order,
+    * but lines of different subbands (and bands) are interleaved.
+    * @param band the band of the image
+    * @param subband index of the subband, ordered as in <code>WaveletOpImage</code>
+    * @param line index of the line inside the subband
+    * @param data[] where to store the coefficients
+    * @param offset where the line starts in <code>data</code>
+    * @param length number of coefficients of the line
+    * @see hyper.dsp.WaveletOpImage
+    */
+  public void readSubbandLine(int band, int subband, int line,
+      float data[], int offset, int length) throws java.io.IOException;
+}
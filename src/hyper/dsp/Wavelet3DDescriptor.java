@@ -0,0 +1,110 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+import javax.media.jai.registry.RenderedRegistryMode;
+import javax.media.jai.registry.RenderableRegistryMode;
+import java.util.Vector;
+import javax.media.jai.util.Range;
+
+/**
+  * An <code>OperationDescriptor</code> describing the "Wavelet3D" operation.
+  * <P> The "Wavelet3D" operation performs the wavelet tranformation (or its
+  * inverse) across the bands of the image and then over each band, obtaining
+  * as a result a float image (short or int for integer sources and
+  * "legall53") whose first bands hold most of the energy.
+  * <p><table border=1>
+  * <caption>Resource List</caption>
+  * <tr><th>Name</th><th>Value</th></tr>
+  * <tr><th>GlobalName</th><td>Wavelet3D</td></tr>
+  * <tr><th>LocalName</th><td>Wavelet3D</td></tr>
+  * <tr><th>Description</th><td>3D Wavelet Tranformation</td></tr>
+  * <tr><th>DocURL</th><td>Wavelet3DDescriptor.html</td></tr>
+  * <tr><th>Version</th><td>0.1</td></tr>
+  * <tr><th>arg0Desc</th><td>A String to specify which algorism to use.</td></tr>
+  * <tr><th>arg1Desc</th><td>Number of levels (iterations to do).</td></tr>
+  * <tr><th>arg2Desc</th><td>Number of levels across bands.</td></tr>
+  * <tr><th>arg3Desc</th><td>Whether to do the inverse transform.</td></tr>
+  * <tr><th>arg4Desc</th><td>Threads computing the bands (0, all processors).</td></tr>
+  * </table></p>
+  * <p><table border=1>
+  * <caption>Parameter List</caption>
+  * <tr><th>Name</th><th>Class Type</th><th>Default Value</th></tr>
+  * <tr><td>algorism</td><td>java.lang.String</td><td>"uniform"</td></tr>
+  * <tr><td>level</td><td>java.lang.Integer</td><td>1</td></tr> 
+  * <tr><td>spectralLevel</td><td>java.lang.Integer</td><td>1</td></tr> 
+  * <tr><td>inverse</td><td>java.lang.Boolean</td><td>false</td></tr> 
+  * <tr><td>parallelism</td><td>java.lang.Integer</td><td>1</td></tr> 
+  * </table></p>  
+  * @see hyper.dsp.Wavelet3DOpImage
+  * @author David Gavilan
+  */
+public class Wavelet3DDescriptor extends OperationDescriptorImpl {
+
+  private static final String[][] resources = {
+     {"GlobalName", "Wavelet3D"},
+     {"LocalName",  "Wavelet3D"},
+     {"Description", "Does the wavelet transformation across and over bands."},
+     {"DocURL",      "Wavelet3DDescriptor.html"},
+     {"Version",     "0.0"},
+     {"arg0Desc",    "A String to specify which wavelet algorism to use."},
+     {"arg1Desc",    "Number of levels (iterations to do)."},
+     {"arg2Desc",    "Number of levels across bands."},
+     {"arg3Desc",    "Whether to do the inverse transform."},
+     {"arg4Desc",    "Threads computing the bands (0, all processors)."}
+  };
+  
+  private static final Class[] paramClasses = {
+      java.lang.String.class, java.lang.Integer.class,
+      java.lang.Integer.class, java.lang.Boolean.class,
+      java.lang.Integer.class };
+  private static final String[] paramNames = {
+      "algorism", "level", "spectralLevel", "inverse", "parallelism" };
+  private static final Object[] paramDefaults = {
+      new String("shore"), new Integer(1), new Integer(1), Boolean.FALSE,
+      new Integer(1) };
+  private static final Object[] validParamValues  = {
+      null,
+      new Range(Integer.class, new Integer(1), new Integer(10)),
+      new Range(Integer.class, new Integer(0), new Integer(10)),
+      null,
+      new Range(Integer.class, new Integer(0), new Integer(Integer.MAX_VALUE))
+      };
+  private static final Vector algorithms = validAlgorism();
+  
+  public Wavelet3DDescriptor() {
+    super(resources, new String[] {RenderedRegistryMode.MODE_NAME,
+          RenderableRegistryMode.MODE_NAME}, 1,
+	  paramNames, paramClasses, paramDefaults, validParamValues);
+  }
+  
+  protected boolean validateParameters(String modeName,
+         ParameterBlock args, StringBuffer msg) {
+    if (!super.validateParameters(modeName, args, msg)) {
+       return false;
+    }
+    
+    String algo = (String)args.getObjectParameter(0);
+    
+    if (!algorithms.contains(algo)) {
+       msg.append(getName() + algo + " - Unknown algorism.");
+       return false;
+    }
+    
+    return true;
+  }
+  
+  private static Vector validAlgorism() {
+    Vector v = new Vector();
+    v.add("shore");
+    v.add("haar");
+    v.add("lshore");
+    v.add("lhaar");
+    v.add("cdf97");
+    v.add("legall53");
+    return v;
+  }  
+    
+}
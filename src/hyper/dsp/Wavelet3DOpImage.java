@@ -0,0 +1,175 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import javax.media.jai.*;
+import java.util.Map;
+
+/**
+  * OpImage implementation for "Wavelet3D" operator.
+  *
+  * <p> Performs a 3D Wavelet Transformation of a hyperspectral image (or its
+  * inverse): first a 1D transform across the bands of every pixel, so that
+  * the correlation between neighbour wavelengths is removed too, and then the
+  * usual 2D transform of each band (see <code>WaveletOpImage</code>).
+  * <P>After <code>spectralLevel</code> levels, the first
+  * <code>bands/2^spectralLevel</code> bands hold the spectral low band
+  * (something like a coarse version of the spectrum), followed by the
+  * spectral high bands of each level, the coarsest first. Every band is then
+  * divided in spatial subbands as usual, so quantization and labelling work
+  * on it unchanged, but most of the energy is left in the first bands and
+  * high bands have far fewer significant coefficients.
+  * <P>The number of bands must be a multiple of <code>2^spectralLevel</code>.
+  * All the algorisms of "Wavelet" are supported, computed by lifting. As in
+  * "Wavelet", integer sources with the reversible "legall53" are transformed
+  * integer-to-integer, and the inverse is exact. Coefficients are short if
+  * the growth of both the spectral and the spatial levels fits in a short,
+  * and int otherwise.
+  * @see hyper.dsp.WaveletLifting#forwardBands
+  * @see hyper.dsp.WaveletLifting#maxInt53
+  * @author David Gavilan
+  */
+public class Wavelet3DOpImage extends WaveletOpImage {
+
+  protected int kind;
+  protected int spectralLevel;
+  protected boolean inverse;
+
+  /**
+    * Constructs an OpImage representing a 3D wavelet.
+    * @param algorism The kind of wavelet.
+    * @param level Times to apply the wavelet on each band.
+    * @param spectralLevel Times to apply the wavelet across bands.
+    * @param inverse Whether to do the inverse transform.
+    * @param parallelism number of threads computing the bands of a tile
+    */
+  public Wavelet3DOpImage(RenderedImage source, ImageLayout layout,
+         Map config, String algorism, int level, int spectralLevel,
+         boolean inverse, int parallelism) {
+     super(inverse ? inverseLayout(source,layout,algorism) :
+           integerLayout(source,layout,algorism,level,spectralLevel),
+           source,config,algorism,level,parallelism);
+
+     int bands = source.getSampleModel().getNumBands();
+     if ((bands & ((1 << spectralLevel) - 1)) != 0) {
+        throw new IllegalArgumentException("Number of bands must be a "+
+            "multiple of "+(1 << spectralLevel)+": "+bands);
+     }
+     this.kind = GlobalWaveletOpImage.getKind(algorism);
+     this.spectralLevel = spectralLevel;
+     this.inverse = inverse;
+  }
+
+  /**
+    * Performs the 3D wavelet operation on a specified rectangle, one tile
+    * at a time.
+    * @param sources an array of source Rasters, guaranteed to provide all
+    *                necessary source data for computing the output. In this
+    *                case, just one Raster.
+    * @param dest a WritableRaster containing the area to be computed
+    * @param destRect the rectangle within dest to be processed
+    */
+  public void computeRect(Raster sources[], WritableRaster dest,
+          Rectangle destRect) {
+     RasterFormatTag[] formatTags = getFormatTags();
+
+     RasterAccessor dst = new RasterAccessor(dest, destRect,
+        formatTags[1], getColorModel());
+     RasterAccessor src = new RasterAccessor(sources[0],
+        mapDestRect(destRect, 0), formatTags[0],
+        getSourceImage(0).getColorModel());
+
+     final int width = dst.getWidth();
+     final int height = dst.getHeight();
+     final int bands = dst.getNumBands();
+     final int dstBandOffsets[] = dst.getBandOffsets();
+     final int dstPixelStride = dst.getPixelStride();
+     final int dstScanlineStride = dst.getScanlineStride();
+
+     if (isIntegerMode(getSourceImage(0), algorism)) {
+        // integer coefficients of a reversible transform
+        final Object dstDataArrays[] =
+           (dst.getDataType() == DataBuffer.TYPE_SHORT) ?
+           (Object[])dst.getShortDataArrays() :
+           (Object[])dst.getIntDataArrays();
+        Object srcDataArrays[] = (src.getDataType() == DataBuffer.TYPE_SHORT) ?
+           (Object[])src.getShortDataArrays() : (Object[])src.getIntDataArrays();
+        for (int k=0;k<bands;k++) {
+           WaveletLifting.copyInt(srcDataArrays[k], dstDataArrays[k],
+               src.getBandOffsets()[k], dstBandOffsets[k],
+               src.getPixelStride(), dstPixelStride,
+               src.getScanlineStride(), dstScanlineStride, width, height);
+        }
+
+        if (!inverse) {
+           WaveletLifting.forwardBandsInt(dstDataArrays, dstBandOffsets,
+               dstPixelStride, dstScanlineStride, width, height,
+               bands, spectralLevel);
+        }
+        ParallelWavelet.forEachBand(parallelism, bands,
+          new ParallelWavelet.BandTask() {
+            public void computeBand(int k) {
+              if (inverse) {
+                 WaveletLifting.inverseInt(dstDataArrays[k],
+                     dstBandOffsets[k], dstPixelStride, dstScanlineStride,
+                     width, height, level);
+              } else {
+                 WaveletLifting.forwardInt(dstDataArrays[k], dstDataArrays[k],
+                     dstBandOffsets[k], dstBandOffsets[k],
+                     dstPixelStride, dstPixelStride,
+                     dstScanlineStride, dstScanlineStride,
+                     width, height, level);
+              }
+            }
+          });
+        if (inverse) {
+           WaveletLifting.inverseBandsInt(dstDataArrays, dstBandOffsets,
+               dstPixelStride, dstScanlineStride, width, height,
+               bands, spectralLevel);
+        }
+     } else {
+        if (dst.getDataType() != DataBuffer.TYPE_FLOAT ||
+            src.getDataType() != DataBuffer.TYPE_FLOAT) {
+           throw new IllegalArgumentException("Supports float data only.");
+        }
+        final float dstDataArrays[][] = dst.getFloatDataArrays();
+        IWaveletOpImage.copyBuffer(src.getFloatDataArrays(), dstDataArrays,
+            src.getBandOffsets(), dstBandOffsets,
+            src.getPixelStride(), dstPixelStride,
+            src.getScanlineStride(), dstScanlineStride,
+            width, height, bands);
+
+        if (!inverse) {
+           WaveletLifting.forwardBands(kind, dstDataArrays, dstBandOffsets,
+               dstPixelStride, dstScanlineStride, width, height,
+               bands, spectralLevel);
+        }
+        ParallelWavelet.forEachBand(parallelism, bands,
+          new ParallelWavelet.BandTask() {
+            public void computeBand(int k) {
+              if (inverse) {
+                 WaveletLifting.inverse(kind, dstDataArrays[k],
+                     dstBandOffsets[k], dstPixelStride, dstScanlineStride,
+                     width, height, level);
+              } else {
+                 WaveletLifting.forward(kind, dstDataArrays[k],
+                     dstDataArrays[k], dstBandOffsets[k], dstBandOffsets[k],
+                     dstPixelStride, dstPixelStride,
+                     dstScanlineStride, dstScanlineStride,
+                     width, height, level);
+              }
+            }
+          });
+        if (inverse) {
+           WaveletLifting.inverseBands(kind, dstDataArrays, dstBandOffsets,
+               dstPixelStride, dstScanlineStride, width, height,
+               bands, spectralLevel);
+        }
+     }
+
+     if (dst.isDataCopy()) {
+       dst.clampDataArrays();
+       dst.copyDataToRaster();
+     }
+  }
+}
@@ -0,0 +1,33 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+
+/**
+  * Class implementing the RIF interface for the Wavelet3D operator.
+  * An instance of this class should be registered with the OperationRegistry
+  * with operation name "Wavelet3D" and product name "ccd-hyper".
+  */
+public class Wavelet3DRIF implements RenderedImageFactory {
+   public Wavelet3DRIF() {}
+   
+   public RenderedImage create(ParameterBlock paramBlock,
+                               RenderingHints renderHints) {
+      RenderedImage source = paramBlock.getRenderedSource(0);
+      
+      ImageLayout layout = renderHints == null ? null : 
+                  (ImageLayout)renderHints.get(JAI.KEY_IMAGE_LAYOUT);
+      
+      String algorism = (String)paramBlock.getObjectParameter(0);
+      int level = paramBlock.getIntParameter(1);
+      int spectralLevel = paramBlock.getIntParameter(2);
+      boolean inverse =
+          ((Boolean)paramBlock.getObjectParameter(3)).booleanValue();
+      int parallelism = paramBlock.getIntParameter(4);
+		  
+      return new Wavelet3DOpImage(source, layout, renderHints,
+             algorism, level, spectralLevel, inverse, parallelism);
+   }
+}
@@ -12,7 +12,9 @@ import javax.media.jai.util.Range;
 /**
   * An <code>OperationDescriptor</code> describing the "Wavelet" operation.
   * <P> The "Wavelet" operation performs a tranformation over the image,
-  * obtaining as a result a float image divided hierarchicly in subbands.
+  * obtaining as a result a float image divided hierarchicly in subbands
+  * (a short image for 8 bit sources and the reversible "legall53", or an
+  * int one when the coefficients may not fit in a short).
   * <p><table border=1>
   * <caption>Resource List</caption>
   * <tr><th>Name</th><th>Value</th></tr>
@@ -23,12 +25,14 @@ import javax.media.jai.util.Range;
   * <tr><th>Version</th><td>0.1</td></tr>
   * <tr><th>arg0Desc</th><td>A String to specify which algorism to use.</td></tr>
   * <tr><th>arg1Desc</th><td>Number of levels (iterations to do).</td></tr>
+  * <tr><th>arg2Desc</th><td>Threads computing the bands (0, all processors).</td></tr>
   * </table></p>
   * <p><table border=1>
   * <caption>Parameter List</caption>
   * <tr><th>Name</th><th>Class Type</th><th>Default Value</th></tr>
   * <tr><td>algorism</td><td>java.lang.String</td><td>"uniform"</td></tr>
   * <tr><td>level</td><td>java.lang.Integer</td><td>1</td></tr> 
+  * <tr><td>parallelism</td><td>java.lang.Integer</td><td>1</td></tr> 
   * </table></p>  
   * @author David Gavilan
   */
@@ -41,18 +45,21 @@ public class WaveletDescriptor extends OperationDescriptorImpl {
      {"DocURL",      "WaveletDescriptor.html"},
      {"Version",     "0.0"},
      {"arg0Desc",    "A String to specify which wavelet algorism to use."},
-     {"arg1Desc",    "Number of levels (iterations to do)."}
+     {"arg1Desc",    "Number of levels (iterations to do)."},
+     {"arg2Desc",    "Threads computing the bands (0, all processors)."}
   };
   
   private static final Class[] paramClasses = {
-      java.lang.String.class, java.lang.Integer.class };
+      java.lang.String.class, java.lang.Integer.class,
+      java.lang.Integer.class };
   private static final String[] paramNames = {
-      "algorism", "level" };
+      "algorism", "level", "parallelism" };
   private static final Object[] paramDefaults = {
-      new String("shore"), new Integer(1) };
+      new String("shore"), new Integer(1), new Integer(1) };
   private static final Object[] validParamValues  = {
       null,
-      new Range(Integer.class, new Integer(1), new Integer(10)) 
+      new Range(Integer.class, new Integer(1), new Integer(10)),
+      new Range(Integer.class, new Integer(0), new Integer(Integer.MAX_VALUE))
       };
   private static final Vector algorithms = validAlgorism();
   
@@ -82,6 +89,10 @@ public class WaveletDescriptor extends OperationDescriptorImpl {
     Vector v = new Vector();
     v.add("shore");
     v.add("haar");
+    v.add("lshore");
+    v.add("lhaar");
+    v.add("cdf97");
+    v.add("legall53");
     return v;
   }  
     
@@ -0,0 +1,793 @@
+package hyper.dsp;
+
+/**
+  * Lifting implementation of the wavelet kernels used by the "Wavelet" and
+  * "IWavelet" operators.
+  *
+  * <p> The transform is done in place over the data arrays of a
+  * <code>RasterAccessor</code>: each level is a horizontal 1D pass over the
+  * rows of the current low band followed by a vertical 1D pass over its
+  * columns. Every 1D pass copies just one line (row or column) into a scratch
+  * buffer, which is allocated once per thread and reused afterwards, so there
+  * is no need to crop the low band into a new buffer at every level.
+  * <p> The vertical passes are strip-mined: a band of adjacent columns is
+  * processed per sweep, so that rows are always walked sequentially instead
+  * of jumping a whole scanline between consecutive samples.
+  * <P>Algorisms supported are:
+  * <p><UL>
+  *    <LI><code>lhaar</code>, same coefficients as <code>haar</code>
+  *    <LI><code>lshore</code>, same coefficients as <code>shore</code>
+  *    <LI><code>cdf97</code>, the biorthogonal Cohen-Daubechies-Feauveau 9/7
+  *    <LI><code>legall53</code>, the reversible integer LeGall 5/3. If the
+  *        source samples are integers, so are the coefficients, and the
+  *        inverse gives back exactly the same samples.
+  *    </UL></P>
+  * The biorthogonal filters use symmetric (whole sample) extension at the
+  * borders. All of them are normalized like <code>haar</code>: the low band
+  * keeps the mean value and the high band has gain 2.
+  * <p> The 5/3 has also an integer-to-integer version working directly over
+  * <code>short</code> or <code>int</code> data arrays (see
+  * <code>forwardInt</code>), so lossless pipelines don't need to convert the
+  * image to float.
+  * The subbands are ordered as explained in <code>WaveletOpImage</code>.
+  * <p> <code>forwardBands</code> applies the same 1D kernels across the
+  * bands of an image, for the spectral part of <code>Wavelet3DOpImage</code>.
+  * @see hyper.dsp.WaveletOpImage
+  * @see hyper.dsp.IWaveletOpImage
+  * @author David Gavilan
+  */
+public class WaveletLifting {
+
+  public static final int UNKNOWN=0, HAAR=1, SHORE=2, CDF97=3, LEGALL53=4;
+
+  /** Lifting coefficients of the CDF 9/7 */
+  static final float ALPHA = -1.586134342f, BETA = -0.05298011854f,
+    GAMMA = 0.8829110762f, DELTA = 0.4435068522f, K = 1.230174105f;
+
+  /** Number of samples of a column block in the vertical passes. 32K floats
+    * (128 KB) should fit in the L2 cache of any recent processor.
+    */
+  public static final int BLOCK_SAMPLES = 1 << 15;
+
+  /** One scratch line per thread, grown whenever a longer one is needed */
+  private static final ThreadLocal scratch = new ThreadLocal();
+  /** The same for the integer kernels */
+  private static final ThreadLocal intScratch = new ThreadLocal();
+
+  /** Returns the lifting kernel associated with an algorism name.
+    * @param algorism the name of the algorism (lhaar, lshore, cdf97, legall53)
+    * @return the kind of kernel or UNKNOWN if it is not a lifting algorism
+    */
+  public static int getKind(String algorism) {
+    if (algorism.equals("lhaar")) return HAAR;
+    if (algorism.equals("lshore")) return SHORE;
+    if (algorism.equals("cdf97")) return CDF97;
+    if (algorism.equals("legall53")) return LEGALL53;
+    return UNKNOWN;
+  }
+
+  /** Whether or not the algorism is computed with these kernels */
+  public static boolean isLifting(String algorism) {
+    return getKind(algorism) != UNKNOWN;
+  }
+
+  /** Whether or not the algorism maps integers to integers, so that it can
+    * be applied to integer images without converting them to float.
+    */
+  public static boolean isReversible(String algorism) {
+    return getKind(algorism) == LEGALL53;
+  }
+
+  /** Throws an IllegalArgumentException if the size doesn't allow
+    * <code>level</code> levels: every level halves the low band, so both
+    * sides must be multiples of <code>2^level</code>.
+    */
+  public static void checkSize(int width, int height, int level) {
+    int mask = (1 << level) - 1;
+    if ((width & mask) != 0 || (height & mask) != 0) {
+      throw new IllegalArgumentException("Image size must be a multiple of "+
+          (1 << level)+": "+width+"x"+height);
+    }
+  }
+
+  /** Returns the scratch line of the calling thread.
+    * @param size minimum number of samples of the line
+    */
+  public static float[] scratchLine(int size) {
+    float line[] = (float[])scratch.get();
+    if (line == null || line.length < size) {
+      line = new float[size];
+      scratch.set(line);
+    }
+    return line;
+  }
+
+  /** Multi-level forward transform. The first level reads from
+    * <code>srcData</code>, the following ones work in place over
+    * <code>dstData</code>.
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53
+    * @param srcData[] the source image data
+    * @param dstData[] where to store the transformed image
+    * @param srcScanlineOffset in which scan-line the source starts
+    * @param dstScanlineOffset the scan-line offset from where to start to store
+    * @param srcPixelStride the distance between consecutive pixels in the source
+    * @param dstPixelStride the distance between consecutive pixels in the destination
+    * @param srcScanlineStride the distance between two scanlines in the source
+    * @param dstScanlineStride the distance between two scanlines in the destination
+    * @param width width of the image (or tile)
+    * @param height height of the image (or tile)
+    * @param level number of levels of the transform
+    * @throws IllegalArgumentException if the size is not a multiple of
+    *         <code>2^level</code>
+    */
+  public static void forward(int kind, float srcData[], float dstData[],
+      int srcScanlineOffset, int dstScanlineOffset,
+      int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride,
+      int width, int height, int level) {
+
+    checkSize(width, height, level);
+    float line[] = scratchLine(Math.max(width, height));
+
+    int sizex = width, sizey = height;
+    for (int l=0; l<level; l++) {
+      // 1D pass horizontally, rows of the current low band
+      int sslo = srcScanlineOffset, dslo = dstScanlineOffset;
+      for (int j=0; j<sizey; j++) {
+        forwardLine(kind, srcData, sslo, srcPixelStride,
+            dstData, dslo, dstPixelStride, sizex, line);
+        sslo += srcScanlineStride;
+        dslo += dstScanlineStride;
+      }
+
+      // 1D pass vertically, in place
+      forwardColumns(kind, dstData, dstScanlineOffset, dstPixelStride,
+          dstScanlineStride, sizex, sizey);
+
+      // next levels just transform the low band of the destination
+      srcData = dstData;
+      srcScanlineOffset = dstScanlineOffset;
+      srcPixelStride = dstPixelStride;
+      srcScanlineStride = dstScanlineStride;
+      sizex >>= 1;
+      sizey >>= 1;
+    }
+  }
+
+  /** Multi-level inverse transform, in place.
+    * @param kind HAAR, SHORE, CDF97 or LEGALL53
+    * @param data[] the transformed image data
+    * @param scanlineOffset in which scan-line the image starts
+    * @param pixelStride the distance between consecutive pixels
+    * @param scanlineStride the distance between two scanlines
+    * @param width width of the image (or tile)
+    * @param height height of the image (or tile)
+    * @param level number of levels of the transform
+    * @throws IllegalArgumentException if the size is not a multiple of
+    *         <code>2^level</code>
+    */
+  public static void inverse(int kind, float data[],
+      int scanlineOffset, int pixelStride, int scanlineStride,
+      int width, int height, int level) {
+
+    checkSize(width, height, level);
+    float line[] = scratchLine(Math.max(width, height));
+
+    int sizex = width >> (level-1);
+    int sizey = height >> (level-1);
+    for (int l=0; l<level; l++) {
+      // 1D pass vertically
+      inverseColumns(kind, data, scanlineOffset, pixelStride, scanlineStride,
+          sizex, sizey);
+
+      // 1D pass horizontally
+      int slo = scanlineOffset;
+      for (int j=0; j<sizey; j++) {
+        inverseLine(kind, data, slo, pixelStride, sizex, line);
+        slo += scanlineStride;
+      }
+
+      sizex <<= 1;
+      sizey <<= 1;
+    }
+  }
+
+  /** One level of the 1D transform of a line. The line is copied to
+    * <code>line</code> first, so source and destination may be the same.
+    * The low band is stored in the first half, the high band in the second.
+    */
+  public static void forwardLine(int kind, float srcData[], int srcOffset,
+      int srcStride, float dstData[], int dstOffset, int dstStride, int size,
+      float line[]) {
+
+    for (int i=0; i<size; i++) {
+      line[i] = srcData[srcOffset];
+      srcOffset += srcStride;
+    }
+
+    lift(kind, line, 1, size, 1f);
+
+    int half = size >> 1;
+    int lo = dstOffset, ho = dstOffset + half*dstStride;
+    for (int i=0; i<size; i+=2) {
+      dstData[lo] = line[i];
+      dstData[ho] = line[i+1];
+      lo += dstStride;
+      ho += dstStride;
+    }
+  }
+
+  /** Inverse of <code>forwardLine</code>, in place. */
+  public static void inverseLine(int kind, float data[], int offset,
+      int stride, int size, float line[]) {
+
+    int half = size >> 1;
+    for (int i=0, lo=offset, ho=offset+half*stride; i<size; i+=2) {
+      line[i] = data[lo];
+      line[i+1] = data[ho];
+      lo += stride;
+      ho += stride;
+    }
+
+    unlift(kind, line, 1, size, 1f);
+
+    for (int i=0; i<size; i++) {
+      data[offset] = line[i];
+      offset += stride;
+    }
+  }
+
+  /** Number of adjacent columns processed per sweep in the vertical passes */
+  public static int blockWidth(int sizex, int sizey) {
+    int block = BLOCK_SAMPLES / sizey;
+    if (block < 1) block = 1;
+    return Math.min(block, sizex);
+  }
+
+  /** One level of the 1D transform over every column of a
+    * <code>sizex</code> by <code>sizey</code> region, in place.
+    * The columns are copied in blocks of <code>blockWidth</code> to the
+    * scratch buffer and written back row by row. In SHORE, the high band of
+    * the right half of the columns gets scaled by 0.5.
+    */
+  public static void forwardColumns(int kind, float data[],
+      int scanlineOffset, int pixelStride, int scanlineStride,
+      int sizex, int sizey) {
+
+    int halfx = sizex >> 1, halfy = sizey >> 1;
+    int block = blockWidth(sizex, sizey);
+    float buf[] = scratchLine(block*sizey);
+    float hhScale = (kind == SHORE) ? 0.5f : 1f;
+
+    for (int i0=0, bw; i0<sizex; i0+=bw) {
+      // blocks don't cross the middle, so that the scale is the same
+      int end = (i0<halfx) ? halfx : sizex;
+      bw = Math.min(block, end-i0);
+      int first = scanlineOffset + i0*pixelStride;
+
+      copyBlock(data, first, pixelStride, scanlineStride, bw, sizey, buf);
+      lift(kind, buf, bw, sizey, (i0<halfx) ? 1f : hhScale);
+
+      // even rows go to the low band, odd rows to the high band
+      int lo = first, ho = first + halfy*scanlineStride;
+      for (int e=0; e<bw*sizey; e+=bw<<1) {
+        int lpo = lo, hpo = ho;
+        for (int i=e, o=e+bw; i<e+bw; i++, o++) {
+          data[lpo] = buf[i];
+          data[hpo] = buf[o];
+          lpo += pixelStride;
+          hpo += pixelStride;
+        }
+        lo += scanlineStride;
+        ho += scanlineStride;
+      }
+    }
+  }
+
+  /** Inverse of <code>forwardColumns</code>, in place. */
+  public static void inverseColumns(int kind, float data[],
+      int scanlineOffset, int pixelStride, int scanlineStride,
+      int sizex, int sizey) {
+
+    int halfx = sizex >> 1, halfy = sizey >> 1;
+    int block = blockWidth(sizex, sizey);
+    float buf[] = scratchLine(block*sizey);
+    float hhScale = (kind == SHORE) ? 0.5f : 1f;
+
+    for (int i0=0, bw; i0<sizex; i0+=bw) {
+      int end = (i0<halfx) ? halfx : sizex;
+      bw = Math.min(block, end-i0);
+      int first = scanlineOffset + i0*pixelStride;
+
+      // interleave low and high rows again
+      int lo = first, ho = first + halfy*scanlineStride;
+      for (int e=0; e<bw*sizey; e+=bw<<1) {
+        int lpo = lo, hpo = ho;
+        for (int i=e, o=e+bw; i<e+bw; i++, o++) {
+          buf[i] = data[lpo];
+          buf[o] = data[hpo];
+          lpo += pixelStride;
+          hpo += pixelStride;
+        }
+        lo += scanlineStride;
+        ho += scanlineStride;
+      }
+
+      unlift(kind, buf, bw, sizey, (i0<halfx) ? 1f : hhScale);
+
+      int k = 0;
+      for (int j=0; j<sizey; j++) {
+        int po = first;
+        for (int i=0; i<bw; i++) {
+          data[po] = buf[k++];
+          po += pixelStride;
+        }
+        first += scanlineStride;
+      }
+    }
+  }
+
+  /** Lifting steps over <code>width</code> interleaved signals of length
+    * <code>size</code> stored row by row in <code>buf</code>. Afterwards,
+    * even rows hold the low band and odd rows the high band.
+    * @param detailScale factor applied to the high band
+    */
+  public static void lift(int kind, float buf[], int width, int size,
+      float detailScale) {
+    switch (kind) {
+    case HAAR:
+    case SHORE:
+      for (int e=0; e<width*size; e+=width<<1) {
+        for (int i=e, o=e+width; i<e+width; i++, o++) {
+          // predict the odd sample with the even one, then update
+          float d = buf[i] - buf[o];
+          buf[i] = buf[o] + 0.5f*d;
+          buf[o] = d * detailScale;
+        }
+      }
+      break;
+    case CDF97:
+      predict(buf, width, size, ALPHA);
+      update(buf, width, size, BETA);
+      predict(buf, width, size, GAMMA);
+      update(buf, width, size, DELTA);
+      scale(buf, width, size, 1f/K, K*detailScale);
+      break;
+    case LEGALL53:
+      predict53(buf, width, size, true);
+      update53(buf, width, size, true);
+      break;
+    }
+  }
+
+  /** Inverse of <code>lift</code> */
+  public static void unlift(int kind, float buf[], int width, int size,
+      float detailScale) {
+    switch (kind) {
+    case HAAR:
+    case SHORE:
+      for (int e=0; e<width*size; e+=width<<1) {
+        for (int i=e, o=e+width; i<e+width; i++, o++) {
+          float d = buf[o] / detailScale;
+          float odd = buf[i] - 0.5f*d;
+          buf[i] = odd + d;
+          buf[o] = odd;
+        }
+      }
+      break;
+    case CDF97:
+      scale(buf, width, size, K, 1f/(K*detailScale));
+      update(buf, width, size, -DELTA);
+      predict(buf, width, size, -GAMMA);
+      update(buf, width, size, -BETA);
+      predict(buf, width, size, -ALPHA);
+      break;
+    case LEGALL53:
+      update53(buf, width, size, false);
+      predict53(buf, width, size, false);
+      break;
+    }
+  }
+
+  /** Odd rows += c*(previous + next even row), mirroring the last one */
+  private static void predict(float buf[], int width, int size, float c) {
+    for (int r=1; r<size; r+=2) {
+      int o = r*width, p = o-width, n = (r+1<size) ? o+width : p;
+      for (int i=0; i<width; i++) buf[o+i] += c*(buf[p+i]+buf[n+i]);
+    }
+  }
+
+  /** Even rows += c*(previous + next odd row), mirroring the first one */
+  private static void update(float buf[], int width, int size, float c) {
+    for (int r=0; r<size; r+=2) {
+      int e = r*width, n = e+width, p = (r>0) ? e-width : n;
+      for (int i=0; i<width; i++) buf[e+i] += c*(buf[p+i]+buf[n+i]);
+    }
+  }
+
+  private static void scale(float buf[], int width, int size,
+      float low, float high) {
+    for (int e=0; e<width*size; e+=width<<1) {
+      for (int i=e, o=e+width; i<e+width; i++, o++) {
+        buf[i] *= low;
+        buf[o] *= high;
+      }
+    }
+  }
+
+  /** Integer predict step of the 5/3: d = x_odd - floor((x_prev+x_next)/2) */
+  private static void predict53(float buf[], int width, int size,
+      boolean forward) {
+    for (int r=1; r<size; r+=2) {
+      int o = r*width, p = o-width, n = (r+1<size) ? o+width : p;
+      for (int i=0; i<width; i++) {
+        float pr = (float)Math.floor((buf[p+i]+buf[n+i])*0.5f);
+        if (forward) buf[o+i] -= pr;
+        else buf[o+i] += pr;
+      }
+    }
+  }
+
+  /** Integer update step of the 5/3: s = x_even + floor((d_prev+d_next+2)/4) */
+  private static void update53(float buf[], int width, int size,
+      boolean forward) {
+    for (int r=0; r<size; r+=2) {
+      int e = r*width, n = e+width, p = (r>0) ? e-width : n;
+      for (int i=0; i<width; i++) {
+        float up = (float)Math.floor((buf[p+i]+buf[n+i]+2f)*0.25f);
+        if (forward) buf[e+i] += up;
+        else buf[e+i] -= up;
+      }
+    }
+  }
+
+  /** Copies a block of <code>width</code> columns, row by row, to
+    * a contiguous buffer.
+    */
+  private static void copyBlock(float data[], int offset, int pixelStride,
+      int scanlineStride, int width, int height, float buf[]) {
+    int k = 0;
+    for (int j=0; j<height; j++) {
+      int po = offset;
+      for (int i=0; i<width; i++) {
+        buf[k++] = data[po];
+        po += pixelStride;
+      }
+      offset += scanlineStride;
+    }
+  }
+
+  /** Multi-level forward transform across the bands of an image (the
+    * spectral dimension), in place. Every pixel is a signal of
+    * <code>bands</code> samples; they are lifted a row of pixels at a time.
+    * Afterwards the first <code>bands>>level</code> bands hold the spectral
+    * low band, followed by the high bands of each level, the coarsest first.
+    * @param kind HAAR, SHORE (same as HAAR in 1D), CDF97 or LEGALL53
+    * @param data[][] the data array of each band
+    * @param bandOffsets[] where each band starts
+    * @param pixelStride the distance between consecutive pixels
+    * @param scanlineStride the distance between two scanlines
+    * @param width width of the image (or tile)
+    * @param height height of the image (or tile)
+    * @param bands number of bands, a multiple of <code>2^level</code>
+    * @param level number of levels of the transform
+    */
+  public static void forwardBands(int kind, float data[][], int bandOffsets[],
+      int pixelStride, int scanlineStride, int width, int height,
+      int bands, int level) {
+
+    float buf[] = scratchLine(width*bands);
+    for (int j=0; j<height; j++) {
+      int slo = j*scanlineStride;
+      for (int l=0, size=bands; l<level; l++, size>>=1) {
+        int half = size >> 1;
+        for (int b=0, e=0; b<size; b++, e+=width) {
+          float d[] = data[b];
+          for (int i=0, po=bandOffsets[b]+slo; i<width; i++, po+=pixelStride)
+            buf[e+i] = d[po];
+        }
+        lift(kind, buf, width, size, 1f);
+        for (int b=0, e=0; b<size; b++, e+=width) {
+          int to = ((b & 1) == 0) ? b >> 1 : half + (b >> 1);
+          float d[] = data[to];
+          for (int i=0, po=bandOffsets[to]+slo; i<width; i++, po+=pixelStride)
+            d[po] = buf[e+i];
+        }
+      }
+    }
+  }
+
+  /** Inverse of <code>forwardBands</code>, in place. */
+  public static void inverseBands(int kind, float data[][], int bandOffsets[],
+      int pixelStride, int scanlineStride, int width, int height,
+      int bands, int level) {
+
+    float buf[] = scratchLine(width*bands);
+    for (int j=0; j<height; j++) {
+      int slo = j*scanlineStride;
+      for (int l=level-1; l>=0; l--) {
+        int size = bands >> l, half = size >> 1;
+        for (int b=0, e=0; b<size; b++, e+=width) {
+          int from = ((b & 1) == 0) ? b >> 1 : half + (b >> 1);
+          float d[] = data[from];
+          for (int i=0, po=bandOffsets[from]+slo; i<width; i++, po+=pixelStride)
+            buf[e+i] = d[po];
+        }
+        unlift(kind, buf, width, size, 1f);
+        for (int b=0, e=0; b<size; b++, e+=width) {
+          float d[] = data[b];
+          for (int i=0, po=bandOffsets[b]+slo; i<width; i++, po+=pixelStride)
+            d[po] = buf[e+i];
+        }
+      }
+    }
+  }
+
+  /** Returns the integer scratch line of the calling thread. */
+  public static int[] intScratchLine(int size) {
+    int line[] = (int[])intScratch.get();
+    if (line == null || line.length < size) {
+      line = new int[size];
+      intScratch.set(line);
+    }
+    return line;
+  }
+
+  /** Bound of the absolute value of the integer 5/3 coefficients of
+    * samples whose absolute value is at most <code>max</code>.
+    * A 1D pass gives a low band up to <code>1.5 max + 1</code> (the L1
+    * norm of the low pass filter, plus the rounding) and a high band up to
+    * <code>2 max + 1</code>. The spectral levels are 1D passes across the
+    * bands, and every spatial level is a 2D pass over the low band of the
+    * previous one.
+    * @param level number of spatial levels
+    * @param spectralLevel number of levels across the bands
+    */
+  public static double maxInt53(double max, int level, int spectralLevel) {
+    double low = max, top = max;
+    for (int l=0; l<spectralLevel; l++) {
+      top = Math.max(top, 2*low+1);
+      low = 1.5*low+1;
+    }
+    low = Math.max(top, low);
+    for (int l=0; l<level; l++) {
+      // HH is the largest of the three high subbands
+      top = Math.max(top, 2*(2*low+1)+1);
+      low = 1.5*(1.5*low+1)+1;
+    }
+    return Math.max(top, low);
+  }
+
+  /** Multi-level forward integer 5/3. Same as <code>forward</code> with
+    * LEGALL53, but the data arrays are <code>short[]</code> or
+    * <code>int[]</code> (source and destination types may differ).
+    * Coefficients that don't fit in a short destination get saturated,
+    * so the destination must be chosen with <code>maxInt53</code>.
+    */
+  public static void forwardInt(Object srcData, Object dstData,
+      int srcScanlineOffset, int dstScanlineOffset,
+      int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride,
+      int width, int height, int level) {
+
+    checkSize(width, height, level);
+    int sizex = width, sizey = height;
+    for (int l=0; l<level; l++) {
+      int halfx = sizex >> 1, halfy = sizey >> 1;
+
+      // 1D pass horizontally
+      int line[] = intScratchLine(sizex);
+      int sslo = srcScanlineOffset, dslo = dstScanlineOffset;
+      for (int j=0; j<sizey; j++) {
+        load(srcData, sslo, srcPixelStride, line, 0, sizex);
+        liftInt(line, 1, sizex);
+        store(line, 0, 2, dstData, dslo, dstPixelStride, halfx);
+        store(line, 1, 2, dstData, dslo+halfx*dstPixelStride,
+            dstPixelStride, halfx);
+        sslo += srcScanlineStride;
+        dslo += dstScanlineStride;
+      }
+
+      // 1D pass vertically, in place, by blocks of columns
+      int block = blockWidth(sizex, sizey);
+      int buf[] = intScratchLine(block*sizey);
+      for (int i0=0, bw; i0<sizex; i0+=bw) {
+        bw = Math.min(block, sizex-i0);
+        int first = dstScanlineOffset + i0*dstPixelStride;
+        int po = first;
+        for (int e=0; e<bw*sizey; e+=bw) {
+          load(dstData, po, dstPixelStride, buf, e, bw);
+          po += dstScanlineStride;
+        }
+        liftInt(buf, bw, sizey);
+        int lo = first, ho = first + halfy*dstScanlineStride;
+        for (int e=0; e<bw*sizey; e+=bw<<1) {
+          store(buf, e, 1, dstData, lo, dstPixelStride, bw);
+          store(buf, e+bw, 1, dstData, ho, dstPixelStride, bw);
+          lo += dstScanlineStride;
+          ho += dstScanlineStride;
+        }
+      }
+
+      srcData = dstData;
+      srcScanlineOffset = dstScanlineOffset;
+      srcPixelStride = dstPixelStride;
+      srcScanlineStride = dstScanlineStride;
+      sizex = halfx;
+      sizey = halfy;
+    }
+  }
+
+  /** Multi-level inverse integer 5/3, in place over a <code>short[]</code>
+    * or <code>int[]</code> data array.
+    */
+  public static void inverseInt(Object data,
+      int scanlineOffset, int pixelStride, int scanlineStride,
+      int width, int height, int level) {
+
+    checkSize(width, height, level);
+    int sizex = width >> (level-1);
+    int sizey = height >> (level-1);
+    for (int l=0; l<level; l++) {
+      int halfx = sizex >> 1, halfy = sizey >> 1;
+
+      // 1D pass vertically
+      int block = blockWidth(sizex, sizey);
+      int buf[] = intScratchLine(block*sizey);
+      for (int i0=0, bw; i0<sizex; i0+=bw) {
+        bw = Math.min(block, sizex-i0);
+        int first = scanlineOffset + i0*pixelStride;
+        int lo = first, ho = first + halfy*scanlineStride;
+        for (int e=0; e<bw*sizey; e+=bw<<1) {
+          load(data, lo, pixelStride, buf, e, bw);
+          load(data, ho, pixelStride, buf, e+bw, bw);
+          lo += scanlineStride;
+          ho += scanlineStride;
+        }
+        unliftInt(buf, bw, sizey);
+        int po = first;
+        for (int e=0; e<bw*sizey; e+=bw) {
+          store(buf, e, 1, data, po, pixelStride, bw);
+          po += scanlineStride;
+        }
+      }
+
+      // 1D pass horizontally
+      int line[] = intScratchLine(sizex);
+      int slo = scanlineOffset;
+      for (int j=0; j<sizey; j++) {
+        int lo = slo, ho = slo + halfx*pixelStride;
+        for (int i=0; i<sizex; i+=2) {
+          load(data, lo, pixelStride, line, i, 1);
+          load(data, ho, pixelStride, line, i+1, 1);
+          lo += pixelStride;
+          ho += pixelStride;
+        }
+        unliftInt(line, 1, sizex);
+        store(line, 0, 1, data, slo, pixelStride, sizex);
+        slo += scanlineStride;
+      }
+
+      sizex <<= 1;
+      sizey <<= 1;
+    }
+  }
+
+  /** Copies a rectangle between short[] or int[] arrays */
+  public static void copyInt(Object srcData, Object dstData,
+      int srcScanlineOffset, int dstScanlineOffset,
+      int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride,
+      int width, int height) {
+    int line[] = intScratchLine(width);
+    for (int j=0; j<height; j++) {
+      load(srcData, srcScanlineOffset, srcPixelStride, line, 0, width);
+      store(line, 0, 1, dstData, dstScanlineOffset, dstPixelStride, width);
+      srcScanlineOffset += srcScanlineStride;
+      dstScanlineOffset += dstScanlineStride;
+    }
+  }
+
+  /** Integer 5/3 lifting over interleaved rows, like <code>lift</code> */
+  public static void liftInt(int buf[], int width, int size) {
+    for (int r=1; r<size; r+=2) {
+      int o = r*width, p = o-width, n = (r+1<size) ? o+width : p;
+      for (int i=0; i<width; i++) buf[o+i] -= (buf[p+i]+buf[n+i]) >> 1;
+    }
+    for (int r=0; r<size; r+=2) {
+      int e = r*width, n = e+width, p = (r>0) ? e-width : n;
+      for (int i=0; i<width; i++) buf[e+i] += (buf[p+i]+buf[n+i]+2) >> 2;
+    }
+  }
+
+  /** Inverse of <code>liftInt</code> */
+  public static void unliftInt(int buf[], int width, int size) {
+    for (int r=0; r<size; r+=2) {
+      int e = r*width, n = e+width, p = (r>0) ? e-width : n;
+      for (int i=0; i<width; i++) buf[e+i] -= (buf[p+i]+buf[n+i]+2) >> 2;
+    }
+    for (int r=1; r<size; r+=2) {
+      int o = r*width, p = o-width, n = (r+1<size) ? o+width : p;
+      for (int i=0; i<width; i++) buf[o+i] += (buf[p+i]+buf[n+i]) >> 1;
+    }
+  }
+
+  /** Integer 5/3 version of <code>forwardBands</code>, over
+    * <code>short[]</code> or <code>int[]</code> data arrays.
+    */
+  public static void forwardBandsInt(Object data[], int bandOffsets[],
+      int pixelStride, int scanlineStride, int width, int height,
+      int bands, int level) {
+
+    int buf[] = intScratchLine(width*bands);
+    for (int j=0; j<height; j++) {
+      int slo = j*scanlineStride;
+      for (int l=0, size=bands; l<level; l++, size>>=1) {
+        int half = size >> 1;
+        for (int b=0; b<size; b++)
+          load(data[b], bandOffsets[b]+slo, pixelStride, buf, b*width, width);
+        liftInt(buf, width, size);
+        for (int b=0; b<size; b++) {
+          int to = ((b & 1) == 0) ? b >> 1 : half + (b >> 1);
+          store(buf, b*width, 1, data[to], bandOffsets[to]+slo,
+              pixelStride, width);
+        }
+      }
+    }
+  }
+
+  /** Inverse of <code>forwardBandsInt</code>, in place. */
+  public static void inverseBandsInt(Object data[], int bandOffsets[],
+      int pixelStride, int scanlineStride, int width, int height,
+      int bands, int level) {
+
+    int buf[] = intScratchLine(width*bands);
+    for (int j=0; j<height; j++) {
+      int slo = j*scanlineStride;
+      for (int l=level-1; l>=0; l--) {
+        int size = bands >> l, half = size >> 1;
+        for (int b=0; b<size; b++) {
+          int from = ((b & 1) == 0) ? b >> 1 : half + (b >> 1);
+          load(data[from], bandOffsets[from]+slo, pixelStride, buf,
+              b*width, width);
+        }
+        unliftInt(buf, width, size);
+        for (int b=0; b<size; b++)
+          store(buf, b*width, 1, data[b], bandOffsets[b]+slo,
+              pixelStride, width);
+      }
+    }
+  }
+
+  /** Reads <code>n</code> samples of a short[] or int[] array */
+  private static void load(Object data, int offset, int stride,
+      int buf[], int k, int n) {
+    if (data instanceof short[]) {
+      short s[] = (short[])data;
+      for (int i=0; i<n; i++, offset+=stride) buf[k++] = s[offset];
+    } else {
+      int s[] = (int[])data;
+      for (int i=0; i<n; i++, offset+=stride) buf[k++] = s[offset];
+    }
+  }
+
+  /** Writes <code>n</code> samples, taken every <code>step</code> from
+    * <code>buf</code>, to a short[] (saturating) or int[] array.
+    * The forward transforms never saturate, as their destinations are
+    * wide enough; an inverse may, if the coefficients were modified.
+    */
+  private static void store(int buf[], int k, int step,
+      Object data, int offset, int stride, int n) {
+    if (data instanceof short[]) {
+      short d[] = (short[])data;
+      for (int i=0; i<n; i++, k+=step, offset+=stride) {
+        int v = buf[k];
+        d[offset] = (short)((v > Short.MAX_VALUE) ? Short.MAX_VALUE :
+                            (v < Short.MIN_VALUE) ? Short.MIN_VALUE : v);
+      }
+    } else {
+      int d[] = (int[])data;
+      for (int i=0; i<n; i++, k+=step, offset+=stride) d[offset] = buf[k];
+    }
+  }
+}
@@ -13,8 +13,22 @@ import java.util.Map;
   * <p><UL>
   *    <LI>shore
   *    <LI>haar
+  *    <LI>lshore, shore computed in place by lifting
+  *    <LI>lhaar, haar computed in place by lifting
+  *    <LI>cdf97, biorthogonal CDF 9/7 by lifting
+  *    <LI>legall53, reversible integer LeGall 5/3 by lifting
   *    </UL></P>
-  * <P>You must also specify how many levels shall be calculated. For later use,
+  * <P>Usually the source is a float image, and so is the result. But if the
+  *    source is an integer image and the algorism is reversible (legall53),
+  *    the transform is integer-to-integer and the result is a short image,
+  *    or an int one if the coefficients may not fit in a short (16 bit
+  *    sources, or bytes with more than 5 levels, see
+  *    <code>integerType</code>). This way lossless pipelines don't need to
+  *    go through float, and never lose a sample.
+  * <P>You must also specify how many levels shall be calculated. With the
+  *    lifting algorisms, the width and height of every tile (so those of the
+  *    image too, if its border tiles are cut) must be multiples of
+  *    <code>2^level</code>. For later use,
   *    remember that we order the subbands this way:
   *    <P>(being level=3)<P align=center>
   *    <table border=1><tr><td><table border=1><tr><td><table border=1>
@@ -29,6 +43,8 @@ public class WaveletOpImage extends PointOpImage {
 
   protected String algorism;
   protected int level;
+  /** Threads computing the bands of a tile, 0 for one per processor */
+  protected int parallelism = 1;
  
   /**
     * Constructs an OpImage representing a wavelet.
@@ -37,10 +53,109 @@ public class WaveletOpImage extends PointOpImage {
     */
   public WaveletOpImage(RenderedImage source, ImageLayout layout,
          Map config, String algorism, int level) {
-     super(source,layout,config,true);
+     this(source,layout,config,algorism,level,1);
+  }
+
+  /**
+    * Constructs an OpImage representing a wavelet, whose bands are computed
+    * in parallel.
+    * @param algorism The kind of wavelet.
+    * @param level Times to apply the wavelet on image.
+    * @param parallelism number of threads (1 to compute bands one after
+    *        the other, 0 for one thread per processor)
+    * @see hyper.dsp.ParallelWavelet
+    */
+  public WaveletOpImage(RenderedImage source, ImageLayout layout,
+         Map config, String algorism, int level, int parallelism) {
+     super(source,integerLayout(source,layout,algorism,level,0),config,true);
      
      this.algorism = algorism;
      this.level = level;
+     this.parallelism = parallelism;
+  }
+
+  /**
+    * Constructs an OpImage whose destination has exactly the given layout,
+    * whatever the source. Used by the operators that fuse the wavelet with
+    * some other step, whose result is not made of wavelet coefficients, and
+    * by those that choose the destination type themselves.
+    * @param destLayout the layout of the destination
+    * @param algorism The kind of wavelet.
+    * @param level Times to apply the wavelet on image.
+    * @param parallelism number of threads computing the bands of a tile
+    */
+  protected WaveletOpImage(ImageLayout destLayout, RenderedImage source,
+         Map config, String algorism, int level, int parallelism) {
+     super(source,destLayout,config,true);
+
+     this.algorism = algorism;
+     this.level = level;
+     this.parallelism = parallelism;
+  }
+
+  public String getAlgorism() { return algorism; }
+  public int getLevel() { return level; }
+  public int getParallelism() { return parallelism; }
+
+  /** Whether the transform of this source can be done integer-to-integer.
+    */
+  public static boolean isIntegerMode(RenderedImage source, String algorism) {
+     int type = source.getSampleModel().getDataType();
+     return WaveletLifting.isReversible(algorism) &&
+        type != DataBuffer.TYPE_FLOAT && type != DataBuffer.TYPE_DOUBLE;
+  }
+
+  /** Data type of the integer 5/3 coefficients of a source: short if
+    * they surely fit in it, int otherwise. Sources of 16 bits (signed or
+    * not) or more always need int; bytes fit in short up to 5 levels.
+    * @param level number of spatial levels
+    * @param spectralLevel number of levels across the bands (see
+    *        <code>Wavelet3DOpImage</code>)
+    * @see hyper.dsp.WaveletLifting#maxInt53
+    */
+  public static int integerType(RenderedImage source, int level,
+         int spectralLevel) {
+     double max;
+     switch (source.getSampleModel().getDataType()) {
+     case DataBuffer.TYPE_BYTE:
+        max = 255;
+        break;
+     case DataBuffer.TYPE_SHORT:
+        max = -Short.MIN_VALUE;
+        break;
+     case DataBuffer.TYPE_USHORT:
+        max = 65535;
+        break;
+     default:
+        return DataBuffer.TYPE_INT;
+     }
+     return (WaveletLifting.maxInt53(max, level, spectralLevel) <=
+             Short.MAX_VALUE) ? DataBuffer.TYPE_SHORT : DataBuffer.TYPE_INT;
+  }
+
+  /** Returns a short or int layout (see <code>integerType</code>) for
+    * integer transforms, or the given one otherwise.
+    */
+  protected static ImageLayout integerLayout(RenderedImage source,
+         ImageLayout layout, String algorism, int level, int spectralLevel) {
+     if (isIntegerMode(source, algorism))
+        return QuantizationOpImage.setLayoutInt(source,
+            integerType(source, level, spectralLevel));
+     return layout;
+  }
+
+  /** Layout of the inverse of an integer transform: short coefficients
+    * give back short samples, as they came from a source that fits in
+    * short, and any other integer type gives int samples. The given layout
+    * otherwise.
+    */
+  protected static ImageLayout inverseLayout(RenderedImage source,
+         ImageLayout layout, String algorism) {
+     if (!isIntegerMode(source, algorism)) return layout;
+     int type = source.getSampleModel().getDataType();
+     return QuantizationOpImage.setLayoutInt(source,
+         (type == DataBuffer.TYPE_SHORT || type == DataBuffer.TYPE_BYTE) ?
+         DataBuffer.TYPE_SHORT : DataBuffer.TYPE_INT);
   }
 
   /**
@@ -62,6 +177,12 @@ public class WaveletOpImage extends PointOpImage {
      RasterAccessor dst = new RasterAccessor(dest, destRect, 
         formatTags[1], getColorModel());
 
+     // integer sources of a reversible transform stay integer
+     if (isIntegerMode(getSourceImage(0), algorism)) {
+        computeRectInt(sources, dest, destRect, dst);
+        return;
+     }
+
      // the resulting image will be float (more accuracy before
      // the quantization process)
      if (dst.getDataType() != DataBuffer.TYPE_FLOAT) {
@@ -97,40 +218,28 @@ public class WaveletOpImage extends PointOpImage {
      // get source data array references and strides     
      float srcDataArrays[][] = src.getFloatDataArrays();
      int srcBandOffsets[] = src.getBandOffsets();
-     //int srcPixelStride = src.getPixelStride();
+     int srcPixelStride = src.getPixelStride();
      int srcScanlineStride = src.getScanlineStride();
 
-     for (int k=0;k<dnumBands;k++) {
-       float dstData[] = dstDataArrays[k];
-       float srcData[] = srcDataArrays[k];
-       int srcScanlineOffset = srcBandOffsets[k];
-       int dstScanlineOffset = dstBandOffsets[k];
-       
-       int rangex = halfx;
-       int rangey = halfy;
-       int sslo = srcScanlineOffset;
-       int sps = dstPixelStride;
-       int ssls = srcScanlineStride;
-       for (int i=0; i<level; i++) {
-          if (algorism.equals("shore")) {
-              shoreWt(srcData, dstData, sslo, dstScanlineOffset,
-                  sps, dstPixelStride, ssls, dstScanlineStride, rangex, rangey );
-	  	} else if (algorism.equals("haar")) {
-              haarWt(srcData, dstData, sslo, dstScanlineOffset,
-                  sps, dstPixelStride, ssls, dstScanlineStride, rangex, rangey );
-	  	}
-	  	if (i<level-1) srcData = cropBuffer(dstData, dstScanlineOffset,
-                    dstPixelStride, dstScanlineStride, 
-	            	dstScanlineOffset, rangex, rangey);
-	  	sslo = 0;
-	  	sps = 1;
-	  	ssls = rangex;
-  	    rangex >>= 1;
-  	    rangey >>= 1;
-       }		    
-       
-     }
-     
+     // bands are independent, so they may be computed in parallel
+     final float fdstDataArrays[][] = dstDataArrays;
+     final float fsrcDataArrays[][] = srcDataArrays;
+     final int fsrcBandOffsets[] = srcBandOffsets;
+     final int fdstBandOffsets[] = dstBandOffsets;
+     final int fsrcPixelStride = srcPixelStride;
+     final int fsrcScanlineStride = srcScanlineStride;
+     final int fdstPixelStride = dstPixelStride;
+     final int fdstScanlineStride = dstScanlineStride;
+     final int fdwidth = dwidth, fdheight = dheight;
+     ParallelWavelet.forEachBand(parallelism, dnumBands,
+       new ParallelWavelet.BandTask() {
+         public void computeBand(int k) {
+           WaveletOpImage.this.computeBand(fsrcDataArrays[k],
+               fdstDataArrays[k], fsrcBandOffsets[k], fdstBandOffsets[k],
+               fsrcPixelStride, fdstPixelStride,
+               fsrcScanlineStride, fdstScanlineStride, fdwidth, fdheight);
+         }
+       });
      
      if (dst.isDataCopy()) {
        dst.clampDataArrays();
@@ -138,6 +247,97 @@ public class WaveletOpImage extends PointOpImage {
      }
   }
 
+  /** Transforms a band of a tile.
+    * @param srcData[] the source image data
+    * @param dstData[] where to store the transformed image
+    * @param srcScanlineOffset in which scan-line the source starts
+    * @param dstScanlineOffset the scan-line offset from where to start to store
+    * @param srcPixelStride the distance between consecutive pixels in the source
+    * @param dstPixelStride the distance between consecutive pixels in the destination
+    * @param srcScanlineStride the distance between two scanlines in the source
+    * @param dstScanlineStride the distance between two scanlines in the destination
+    * @param dwidth width of the tile
+    * @param dheight height of the tile
+    */
+  protected void computeBand(float srcData[], float dstData[],
+      int srcScanlineOffset, int dstScanlineOffset,
+      int srcPixelStride, int dstPixelStride,
+      int srcScanlineStride, int dstScanlineStride, int dwidth, int dheight) {
+
+     // lifting kernels work in place, no need to crop the low band
+     int lifting = WaveletLifting.getKind(algorism);
+     if (lifting != WaveletLifting.UNKNOWN) {
+        WaveletLifting.forward(lifting, srcData, dstData,
+            srcScanlineOffset, dstScanlineOffset,
+            srcPixelStride, dstPixelStride,
+            srcScanlineStride, dstScanlineStride,
+            dwidth, dheight, level);
+        return;
+     }
+
+     int rangex = dwidth >> 1;
+     int rangey = dheight >> 1;
+     int sslo = srcScanlineOffset;
+     int sps = srcPixelStride;
+     int ssls = srcScanlineStride;
+     for (int i=0; i<level; i++) {
+        if (algorism.equals("shore")) {
+            shoreWt(srcData, dstData, sslo, dstScanlineOffset,
+                sps, dstPixelStride, ssls, dstScanlineStride, rangex, rangey );
+	} else if (algorism.equals("haar")) {
+            haarWt(srcData, dstData, sslo, dstScanlineOffset,
+                sps, dstPixelStride, ssls, dstScanlineStride, rangex, rangey );
+	}
+	if (i<level-1) srcData = cropBuffer(dstData, dstScanlineOffset,
+                dstPixelStride, dstScanlineStride, 
+	        dstScanlineOffset, rangex, rangey);
+	sslo = 0;
+	sps = 1;
+	ssls = rangex;
+	rangex >>= 1;
+	rangey >>= 1;
+     }
+  }
+
+  /** Integer-to-integer version of <code>computeRect</code>. The accessors
+    * hold short[] or int[] arrays, depending on the types of source and
+    * destination.
+    */
+  private void computeRectInt(Raster sources[], WritableRaster dest,
+          Rectangle destRect, RasterAccessor dst) {
+
+     RasterAccessor src = new RasterAccessor(sources[0],
+        mapDestRect(destRect, 0), getFormatTags()[0],
+        getSourceImage(0).getColorModel());
+
+     boolean shorts = dst.getDataType() == DataBuffer.TYPE_SHORT;
+     Object dstDataArrays[] = shorts ? (Object[])dst.getShortDataArrays() :
+        (Object[])dst.getIntDataArrays();
+     Object srcDataArrays[] = (src.getDataType() == DataBuffer.TYPE_SHORT) ?
+        (Object[])src.getShortDataArrays() : (Object[])src.getIntDataArrays();
+     final Object fdstDataArrays[] = dstDataArrays;
+     final Object fsrcDataArrays[] = srcDataArrays;
+     final int dstBandOffsets[] = dst.getBandOffsets();
+     final int srcBandOffsets[] = src.getBandOffsets();
+     final RasterAccessor fsrc = src, fdst = dst;
+
+     ParallelWavelet.forEachBand(parallelism, dst.getNumBands(),
+       new ParallelWavelet.BandTask() {
+         public void computeBand(int k) {
+           WaveletLifting.forwardInt(fsrcDataArrays[k], fdstDataArrays[k],
+               srcBandOffsets[k], dstBandOffsets[k],
+               fsrc.getPixelStride(), fdst.getPixelStride(),
+               fsrc.getScanlineStride(), fdst.getScanlineStride(),
+               fdst.getWidth(), fdst.getHeight(), level);
+         }
+       });
+
+     if (dst.isDataCopy()) {
+       dst.clampDataArrays();
+       dst.copyDataToRaster();
+     }
+  }
+
   /** Applies the shore wavelet.
     * @param srcData[] the source image data
     * @param dstData[] where to store the transformed image
@@ -223,23 +423,10 @@ public class WaveletOpImage extends PointOpImage {
 	 	dslo +=dstScanlineStride;
      }
      
-     // apply 1D Haar vertically
-     migSalt = halfy * dstScanlineStride;
-     dslo = dstScanlineOffset;     
-     for (int i = 0; i<sizex;i++) {
-	 	int halfOff = dslo;
-	 
-	 	float[] vline=cropBuffer(dstData, dstScanlineOffset,
-	         dstPixelStride, dstScanlineStride,
-		 	halfOff, 1, sizey);
-	 	for (int j = 0; j<sizey; j+=2) {
-	  	 dstData[halfOff] = (vline[j]+vline[j+1]) / 2f;
-	   	dstData[halfOff+migSalt] = vline[j]-vline[j+1];
-	       
-	   	halfOff += dstScanlineStride;
-	 	}
-	 	dslo +=dstPixelStride;
-     }
+     // apply 1D Haar vertically, strip-mined so that rows are walked
+     // sequentially instead of one column at a time
+     WaveletLifting.forwardColumns(WaveletLifting.HAAR, dstData,
+         dstScanlineOffset, dstPixelStride, dstScanlineStride, sizex, sizey);
   }
     
   /** Crops a portion of an image.
@@ -0,0 +1,129 @@
+package hyper.dsp;
+
+import java.awt.*;
+import java.awt.image.*;
+import javax.media.jai.*;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+  * OpImage implementation for "WaveletQuantize" operator.
+  *
+  * <p> Does the same as a "Wavelet" followed by a lattice "Quantization", but
+  * without the float image in between: each band of a tile is transformed
+  * into a float buffer of the thread computing it, its subbands are
+  * quantized there, and only the quantized values are written, to a short
+  * image. The buffer is reused for all the tiles, so the coefficients don't
+  * go through memory but once.
+  * <P>The source must be a float image. All the algorisms of "Wavelet" are
+  * supported, and the quantization configuration is the same as the one of
+  * a lattice "Quantization".
+  * @see hyper.dsp.DequantizeIWaveletOpImage
+  * @see hyper.dsp.QuantizationPlan
+  * @author David Gavilan
+  */
+public class WaveletQuantizeOpImage extends WaveletOpImage {
+
+  /** A float buffer per thread, grown whenever a bigger one is needed */
+  private static final ThreadLocal scratch = new ThreadLocal();
+
+  protected QuantizationPlan plan;
+  /** Tag to access the destination as short, not as float like the source */
+  protected RasterFormatTag dstTag;
+
+  /**
+    * Constructs an OpImage representing a quantized wavelet.
+    * @param algorism The kind of wavelet.
+    * @param level Times to apply the wavelet on image.
+    * @param coefs a <code>Vector</code> per band with the
+    *        <code>ParamLattice</code> of each subband
+    * @param parallelism number of threads computing the bands of a tile
+    */
+  public WaveletQuantizeOpImage(RenderedImage source, ImageLayout layout,
+         Map config, String algorism, int level, Vector[] coefs,
+         int parallelism) {
+     super(QuantizationOpImage.setLayoutS(source),source,config,
+         algorism,level,parallelism);
+
+     plan = new QuantizationPlan(coefs,
+         source.getSampleModel().getNumBands(), level);
+     dstTag = RasterAccessor.findCompatibleTags(null, this)[0];
+  }
+
+  /** Returns a float buffer of at least <code>size</code> samples, only
+    * for the calling thread. */
+  static float[] scratchTile(int size) {
+    float buf[] = (float[])scratch.get();
+    if (buf == null || buf.length < size) {
+      buf = new float[size];
+      scratch.set(buf);
+    }
+    return buf;
+  }
+
+  /**
+    * Transforms and quantizes a specified rectangle, one tile at a time.
+    * @param sources an array of source Rasters, guaranteed to provide all
+    *                necessary source data for computing the output. In this
+    *                case, just one Raster.
+    * @param dest a WritableRaster containing the area to be computed
+    * @param destRect the rectangle within dest to be processed
+    */
+  public void computeRect(Raster sources[], WritableRaster dest,
+          Rectangle destRect) {
+     RasterAccessor dst = new RasterAccessor(dest, destRect,
+        dstTag, getColorModel());
+     RasterAccessor src = new RasterAccessor(sources[0],
+        mapDestRect(destRect, 0), getFormatTags()[0],
+        getSourceImage(0).getColorModel());
+
+     if (src.getDataType() != DataBuffer.TYPE_FLOAT) {
+        throw new IllegalArgumentException("Float datatype sources only.");
+     }
+
+     final int width = dst.getWidth();
+     final int height = dst.getHeight();
+     final short dstDataArrays[][] = dst.getShortDataArrays();
+     final int dstBandOffsets[] = dst.getBandOffsets();
+     final int dstPixelStride = dst.getPixelStride();
+     final int dstScanlineStride = dst.getScanlineStride();
+     final float srcDataArrays[][] = src.getFloatDataArrays();
+     final int srcBandOffsets[] = src.getBandOffsets();
+     final int srcPixelStride = src.getPixelStride();
+     final int srcScanlineStride = src.getScanlineStride();
+
+     ParallelWavelet.forEachBand(parallelism, dst.getNumBands(),
+       new ParallelWavelet.BandTask() {
+         public void computeBand(int k) {
+           float buf[] = scratchTile(width*height);
+           WaveletQuantizeOpImage.this.computeBand(srcDataArrays[k], buf,
+               srcBandOffsets[k], 0, srcPixelStride, 1,
+               srcScanlineStride, width, width, height);
+           plan.quantizeTile(k, buf, 0, 1, width, width, height);
+           store(buf, dstDataArrays[k], dstBandOffsets[k],
+               dstPixelStride, dstScanlineStride, width, height);
+         }
+       });
+
+     if (dst.isDataCopy()) {
+       dst.copyDataToRaster();
+     }
+  }
+
+  /** Copies the quantized values of a tile to the destination, clamped to
+    * the range of a short as "Quantization" does. */
+  private static void store(float buf[], short dstData[], int dstOffset,
+      int dstPixelStride, int dstScanlineStride, int width, int height) {
+    for (int j=0, i=0; j<height; j++) {
+      int dpo = dstOffset;
+      for (int x=0; x<width; x++, i++) {
+        float v = buf[i];
+        if (v > Short.MAX_VALUE) v = Short.MAX_VALUE;
+        else if (v < Short.MIN_VALUE) v = Short.MIN_VALUE;
+        dstData[dpo] = (short)v;
+        dpo += dstPixelStride;
+      }
+      dstOffset += dstScanlineStride;
+    }
+  }
+}
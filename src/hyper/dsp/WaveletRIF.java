@@ -22,8 +22,9 @@ public class WaveletRIF implements RenderedImageFactory {
       
       String algorism = (String)paramBlock.getObjectParameter(0);
       int level = paramBlock.getIntParameter(1);
+      int parallelism = paramBlock.getIntParameter(2);
 		  
       return new WaveletOpImage(source, layout, renderHints,
-             algorism, level);
+             algorism, level, parallelism);
    }
 }
@@ -0,0 +1,56 @@
+import java.awt.image.DataBuffer;
+import java.awt.image.renderable.*;
+import java.util.Vector;
+import javax.media.jai.*;
+import javax.media.jai.registry.*;
+
+import hyper.QuantizerConfig;
+import hyper.dsp.*;
+
+/**
+  * Chooses the quantization scales of an image for a target bit rate or
+  * PSNR, and writes them as a quantizer configuration for CompressMe.
+  * <p>Usage: java AllocateMe image level (bpp|psnr) target [output.xml]
+  */
+public class AllocateMe {
+
+	// Register "Wavelet" operator and its RIFs
+	static {
+     OperationRegistry registry =
+        JAI.getDefaultInstance().getOperationRegistry();
+
+     registry.registerDescriptor(new WaveletDescriptor());
+     RenderedImageFactory waveletRIF = new WaveletRIF();
+     RIFRegistry.register(registry, "Wavelet", "ccd-hyper",waveletRIF);
+   }
+
+	public static void main(String args[]) {
+		if (args.length < 4) {
+			System.err.println("Usage: java AllocateMe image level (bpp|psnr) target [output.xml]");
+			return;
+		}
+		try {
+			int level = Integer.parseInt(args[1]);
+			double target = Double.parseDouble(args[3]);
+			String out = (args.length > 4) ? args[4] : "quantizer.xml";
+
+			PlanarImage pim = JAI.create("fileload",args[0]);
+			pim = COps.reformat(pim,DataBuffer.TYPE_FLOAT);
+			pim = COps.wavelet(pim,"haar",level,0);
+
+			RateAllocation ra = RateAllocation.measure(pim,"haar",level,0);
+			Vector[] coefs = args[2].equals("psnr") ?
+				ra.forPSNR(target,255) : ra.forRate(target);
+
+			double e[] = ra.estimate(coefs,255);
+			System.out.println("estimated: "+e[0]+" bpp, "+e[1]+" dB");
+			for (int sb=0; sb<3*level+1; sb++)
+				System.out.println("subband "+sb+": "+
+					((ParamLattice)coefs[0].get(sb)).getScale());
+
+			new QuantizerConfig(level,coefs).save(out);
+		} catch (Exception e) {
+			System.err.println("AllocateMe: "+e);
+		}
+	}
+}
@@ -16,18 +16,14 @@ import org.freehep.util.io.*;
   */
 public class CompressMe {
 	
-	// Register "Wavelet" operator and its RIFs
+	// Register "WaveletQuantize" operator and its RIFs
 	static {
      OperationRegistry registry =
         JAI.getDefaultInstance().getOperationRegistry();
 	
-     registry.registerDescriptor(new WaveletDescriptor());     
-     RenderedImageFactory waveletRIF = new WaveletRIF();
-     RIFRegistry.register(registry, "Wavelet", "ccd-hyper",waveletRIF);
-     
-     registry.registerDescriptor(new QuantizationDescriptor());     
-     RenderedImageFactory quantizationRIF = new QuantizationRIF();
-     RIFRegistry.register(registry, "Quantization", "ccd-hyper",quantizationRIF);
+     registry.registerDescriptor(new WaveletQuantizeDescriptor());     
+     RenderedImageFactory waveletQuantizeRIF = new WaveletQuantizeRIF();
+     RIFRegistry.register(registry, "WaveletQuantize", "ccd-hyper",waveletQuantizeRIF);
    }
 
 	
@@ -40,8 +36,8 @@ public class CompressMe {
 			
 			PlanarImage pim = JAI.create("fileload",args[0]);
 			pim = COps.reformat(pim,DataBuffer.TYPE_FLOAT);
-			pim = COps.wavelet(pim,"haar",config.getLevel());
-			pim = COps.quantization(pim,"lattice",config.getLevel(),config.getConfig());
+			// wavelet and quantization at once, without a float image in between
+			pim = COps.waveletQuantize(pim,"haar",config.getLevel(),config.getConfig());
 					
 		    QuadOutputStream qos = new QuadOutputStream(new FileOutputStream(args[0]+".coded"));						
   	 	 IndexCodingJAI ic = new IndexCodingJAI(pim,config.getLevel(),qos);
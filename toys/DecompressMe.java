@@ -16,18 +16,14 @@ import org.freehep.util.io.*;
   */
 public class DecompressMe {
 	
-	// Register "Wavelet" operator and its RIFs
+	// Register "DequantizeIWavelet" operator and its RIFs
 	static {
      OperationRegistry registry =
         JAI.getDefaultInstance().getOperationRegistry();
 	
-     registry.registerDescriptor(new IWaveletDescriptor());     
-     RenderedImageFactory iwaveletRIF = new IWaveletRIF();
-     RIFRegistry.register(registry, "IWavelet", "ccd-hyper",iwaveletRIF);
-     
-     registry.registerDescriptor(new DeQuantizationDescriptor());     
-     RenderedImageFactory dequantizationRIF = new DeQuantizationRIF();
-     RIFRegistry.register(registry, "DeQuantization", "ccd-hyper",dequantizationRIF);
+     registry.registerDescriptor(new DequantizeIWaveletDescriptor());     
+     RenderedImageFactory dequantizeIWaveletRIF = new DequantizeIWaveletRIF();
+     RIFRegistry.register(registry, "DequantizeIWavelet", "ccd-hyper",dequantizeIWaveletRIF);
    }
 
 	
@@ -53,8 +49,7 @@ public class DecompressMe {
 	        PlanarImage pim = idc.decodeJAI();
   	      qis.close();
 
-			pim = COps.dequantization(pim,"lattice",config.getLevel(),config.getConfig());
-			pim = COps.iwavelet(pim,"haar",config.getLevel());
+			pim = COps.dequantizeIWavelet(pim,"haar",config.getLevel(),config.getConfig());
 			pim = COps.reformat(pim,DataBuffer.TYPE_BYTE);
 
 			hyper.dsp.COps.saveAsTIFF(pim,args[0]+".tiff");
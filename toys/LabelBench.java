@@ -0,0 +1,88 @@
+import java.util.Random;
+
+import hyper.dsp.CardinalTable;
+import hyper.dsp.LabelTable;
+import hyper.dsp.Labelling;
+
+/**
+  * Throughput of the labelling of lattice vectors (index and back), with
+  * long indices up to <code>maxLabelNorm</code> and with 128 bit indices
+  * up to the largest norm whose count fits in 127 bits, and with the
+  * lookups of <code>LabelTable</code> up to the largest norm whose table
+  * fits in its budget.
+  * <p>Usage: java LabelBench [vectors [repetitions]]
+  */
+public class LabelBench {
+
+	public static void main(String args[]) {
+		int n = 100000, reps = 5;
+		if (args.length > 0) n = Integer.parseInt(args[0]);
+		if (args.length > 1) reps = Integer.parseInt(args[1]);
+
+		System.out.println("lattice\tindex\tmax norm\tkVectors/s");
+		int sizes[] = {2,4,8,16};
+		for (int s=0; s<sizes.length; s++) {
+			int d = sizes[s]*sizes[s];
+			String name = sizes[s]+"x"+sizes[s];
+			int norm = Labelling.maxLabelNorm(d);
+			report(name+"\tlong\t"+norm, n,
+				time(vectors(n,d,norm,d), LONG, reps));
+			int tabulated = 0;
+			while (tabulated < norm && LabelTable.forNorm(d,tabulated+1) != null)
+				tabulated++;
+			if (tabulated > 0)
+				report(name+"\ttable\t"+tabulated, n,
+					time(vectors(n,d,tabulated,d), TABLE, reps));
+			norm = Math.min(Labelling.MAX_NORM,
+				CardinalTable.forDimension(d).getOver128()-1);
+			report(name+"\t128\t"+norm, n,
+				time(vectors(n,d,norm,d), WIDE, reps));
+		}
+	}
+
+	static final int LONG = 0, WIDE = 1, TABLE = 2;
+
+	/** Random vectors with norms up to max */
+	static short[][] vectors(int n, int d, int max, long seed) {
+		Random r = new Random(seed);
+		short v[][] = new short[n][d];
+		for (int i=0;i<n;i++) {
+			int norm = r.nextInt(max+1);
+			for (int k=0;k<norm;k++) {
+				int p = r.nextInt(d);
+				v[i][p] += (v[i][p]<0 || (v[i][p]==0 && r.nextBoolean())) ? -1 : 1;
+			}
+		}
+		return v;
+	}
+
+	/** Best time of labelling and decoding all the vectors, in nanoseconds */
+	static long time(short v[][], int mode, int reps) {
+		long best = Long.MAX_VALUE, res[] = new long[2];
+		for (int rep=0;rep<reps;rep++) {
+			long t0 = System.nanoTime();
+			for (int i=0;i<v.length;i++) {
+				int m = Labelling.distanceL1(v[i]);
+				short x[];
+				if (mode == WIDE) {
+					Labelling.index128(v[i],res);
+					x = Labelling.vector128(m,res[0],res[1],v[i].length);
+				} else if (mode == TABLE) {
+					x = LabelTable.vector(m,LabelTable.index(v[i],m),v[i].length);
+				} else {
+					x = Labelling.vector(m,Labelling.index(v[i]),v[i].length);
+				}
+				if (!java.util.Arrays.equals(x,v[i])) {
+					System.out.println("MISMATCH "+Labelling.verV(v[i]));
+					return -1;
+				}
+			}
+			best = Math.min(best, System.nanoTime()-t0);
+		}
+		return best;
+	}
+
+	static void report(String name, int n, long nanos) {
+		System.out.println(name+"\t\t"+Math.round(n/(nanos/1e6)));
+	}
+}
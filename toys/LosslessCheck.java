@@ -0,0 +1,139 @@
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.util.Random;
+
+import hyper.dsp.WaveletLifting;
+import hyper.dsp.WaveletOpImage;
+
+/**
+  * Checks that the integer LeGall 5/3 is lossless on full range data: 8 bit,
+  * signed 16 bit and unsigned 16 bit samples, random and alternating
+  * between the extremes of the range (the worst case for the high bands),
+  * with 1 to 6 levels, alone or after 2 levels across 4 bands as in
+  * "Wavelet3D". Coefficients are stored with the data type
+  * "Wavelet" would choose for such a source, so any sample that doesn't
+  * come back, or any coefficient over the bound of
+  * <code>WaveletLifting.maxInt53</code>, means that type is too narrow.
+  * <p>Usage: java LosslessCheck [size]
+  */
+public class LosslessCheck {
+
+	public static void main(String args[]) {
+		int size = 64;
+		if (args.length > 0) size = Integer.parseInt(args[0]);
+
+		int types[] = {BufferedImage.TYPE_BYTE_GRAY,
+			BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_USHORT_GRAY};
+		String names[] = {"byte", "short", "ushort"};
+		int min[] = {0, Short.MIN_VALUE, 0};
+		int max[] = {255, Short.MAX_VALUE, 65535};
+		boolean failed = false;
+
+		System.out.println("source\tspectral\tlevels\tcoefs\tsamples\t"+
+			"max coef\tbound\tresult");
+		for (int t=0; t<names.length; t++) {
+			BufferedImage image = new BufferedImage(size, size, types[t]);
+			for (int spectral=0; spectral<=2; spectral+=2) {
+				for (int level=1; level<=6 && (size >> level) > 0; level++) {
+					int type = (t == 1) ? shortType(size, level, spectral) :
+						WaveletOpImage.integerType(image, level, spectral);
+					double bound = WaveletLifting.maxInt53(
+						Math.max(-min[t], max[t]), level, spectral);
+					for (int pattern=0; pattern<2; pattern++) {
+						int samples[][] = samples(size, 1 << spectral,
+							min[t], max[t], pattern == 1);
+						String result = roundTrip(samples, size, level, spectral,
+							type, bound);
+						if (!result.endsWith("ok")) failed = true;
+						System.out.println(names[t]+"\t"+spectral+"\t"+level+"\t"+
+							((type == DataBuffer.TYPE_SHORT) ? "short" : "int")+
+							((pattern == 1) ? "\textremes" : "\trandom")+
+							"\t"+result);
+					}
+				}
+			}
+		}
+		System.out.println(failed ? "FAILED" : "all lossless");
+		if (failed) System.exit(1);
+	}
+
+	/** BufferedImage has no signed short type, so the type of a signed
+	  * short source is found with a TYPE_SHORT raster of its own */
+	static int shortType(int size, int level, int spectral) {
+		WritableRaster r = Raster.createWritableRaster(
+			new PixelInterleavedSampleModel(DataBuffer.TYPE_SHORT, size, size,
+				1, size, new int[] {0}), null);
+		ComponentColorModel cm = new ComponentColorModel(
+			ColorSpace.getInstance(ColorSpace.CS_GRAY), false, false,
+			Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
+		return WaveletOpImage.integerType(new BufferedImage(cm, r, false, null),
+			level, spectral);
+	}
+
+	/** Random samples of the range, or its extremes in a checkerboard that
+	  * alternates across the bands too */
+	static int[][] samples(int size, int bands, int min, int max,
+			boolean extremes) {
+		Random r = new Random(size);
+		int s[][] = new int[bands][size*size];
+		for (int b=0; b<bands; b++)
+			for (int j=0; j<size; j++)
+				for (int i=0; i<size; i++)
+					s[b][j*size+i] = extremes ?
+						(((i+j+b) & 1) == 0 ? max : min) :
+						min + r.nextInt(max-min+1);
+		return s;
+	}
+
+	/** Transforms the bands of samples, across the bands and then over
+	  * each, into arrays of the given type and back */
+	static String roundTrip(int samples[][], int size, int level, int spectral,
+			int type, double bound) {
+		int bands = samples.length;
+		int offsets[] = new int[bands];
+		Object coefs[] = new Object[bands];
+		int wide[][] = new int[bands][];
+		for (int b=0; b<bands; b++) {
+			coefs[b] = (type == DataBuffer.TYPE_SHORT) ?
+				(Object)new short[size*size] : (Object)new int[size*size];
+			wide[b] = new int[size*size];
+			WaveletLifting.copyInt(samples[b], coefs[b], 0, 0, 1, 1,
+				size, size, size, size);
+			WaveletLifting.copyInt(samples[b], wide[b], 0, 0, 1, 1,
+				size, size, size, size);
+		}
+		forward(coefs, offsets, size, level, spectral);
+		forward(wide, offsets, size, level, spectral);
+		int top = 0;
+		for (int b=0; b<bands; b++)
+			for (int i=0; i<wide[b].length; i++)
+				top = Math.max(top, Math.abs(wide[b][i]));
+
+		int back[][] = new int[bands][size*size];
+		for (int b=0; b<bands; b++)
+			WaveletLifting.copyInt(coefs[b], back[b], 0, 0, 1, 1,
+				size, size, size, size);
+		for (int b=0; b<bands; b++)
+			WaveletLifting.inverseInt(back[b], 0, 1, size, size, size, level);
+		WaveletLifting.inverseBandsInt(back, offsets, 1, size, size, size,
+			bands, spectral);
+		int wrong = 0;
+		for (int b=0; b<bands; b++)
+			for (int i=0; i<size*size; i++)
+				if (back[b][i] != samples[b][i]) wrong++;
+		String result = top+"\t"+Math.round(bound)+"\t";
+		if (top > bound) return result+"OVER BOUND";
+		return result+((wrong == 0) ? "ok" : wrong+" WRONG");
+	}
+
+	/** Forward 3D transform in place, as "Wavelet3D" does */
+	static void forward(Object data[], int offsets[], int size, int level,
+			int spectral) {
+		WaveletLifting.forwardBandsInt(data, offsets, 1, size, size, size,
+			data.length, spectral);
+		for (int b=0; b<data.length; b++)
+			WaveletLifting.forwardInt(data[b], data[b], 0, 0, 1, 1,
+				size, size, size, size, level);
+	}
+}
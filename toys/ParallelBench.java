@@ -0,0 +1,71 @@
+import hyper.dsp.ParallelWavelet;
+import hyper.dsp.WaveletLifting;
+
+/**
+  * Scaling of the wavelet transform of a hyperspectral tile when its bands
+  * are computed in parallel, with every number of threads from one to all
+  * the processors (or to the given maximum, to check the results with more
+  * threads than processors).
+  * <p>Usage: java ParallelBench [bands [size [algorism [level [repetitions
+  * [threads]]]]]]
+  */
+public class ParallelBench {
+
+	public static void main(String args[]) {
+		int bands = 224, size = 256, level = 3, reps = 10;
+		String algorism = "cdf97";
+		if (args.length > 0) bands = Integer.parseInt(args[0]);
+		if (args.length > 1) size = Integer.parseInt(args[1]);
+		if (args.length > 2) algorism = args[2];
+		if (args.length > 3) level = Integer.parseInt(args[3]);
+		if (args.length > 4) reps = Integer.parseInt(args[4]);
+		int cpus = Runtime.getRuntime().availableProcessors();
+		int threads = cpus;
+		if (args.length > 5) threads = Integer.parseInt(args[5]);
+		final int kind = WaveletLifting.getKind(algorism);
+		final int fsize = size, flevel = level;
+
+		final float src[][] = new float[bands][size*size];
+		final float dst[][] = new float[bands][size*size];
+		java.util.Random r = new java.util.Random(bands);
+		for (int k=0;k<bands;k++)
+			for (int i=0;i<src[k].length;i++) src[k][i]=r.nextInt(4096);
+
+		ParallelWavelet.BandTask task = new ParallelWavelet.BandTask() {
+			public void computeBand(int k) {
+				WaveletLifting.forward(kind,src[k],dst[k],0,0,1,1,fsize,fsize,
+					fsize,fsize,flevel);
+			}
+		};
+
+		System.out.println(bands+" bands of "+size+"x"+size+", "+algorism+
+			", "+level+" levels, "+cpus+" processors");
+		System.out.println("threads\tms\tspeedup\tsame result");
+		float reference[][] = null;
+		double t1 = 0;
+		for (int p=1;p<=threads;p++) {
+			// warm up
+			for (int i=0;i<3;i++) ParallelWavelet.forEachBand(p,bands,task);
+
+			long t0 = System.nanoTime();
+			for (int i=0;i<reps;i++) ParallelWavelet.forEachBand(p,bands,task);
+			double ms = (System.nanoTime()-t0)/1e6/reps;
+
+			boolean same = true;
+			if (reference == null) {
+				t1 = ms;
+				reference = new float[bands][];
+				for (int k=0;k<bands;k++) reference[k] = (float[])dst[k].clone();
+			} else {
+				for (int k=0;k<bands && same;k++)
+					same = java.util.Arrays.equals(reference[k],dst[k]);
+			}
+			System.out.println(p+"\t"+format(ms)+"\t"+format(t1/ms)+"\t"+same);
+		}
+		System.exit(0);
+	}
+
+	static String format(double d) {
+		return ""+Math.round(d*100)/100.0;
+	}
+}
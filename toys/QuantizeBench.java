@@ -0,0 +1,85 @@
+import java.lang.management.ManagementFactory;
+
+import hyper.dsp.ParamLattice;
+
+/**
+  * Allocation rate and throughput of the lattice quantization of a subband,
+  * allocating two vectors per lattice (as <code>subBandLattice</code> used
+  * to) or reusing one for the whole subband.
+  * <p>Usage: java QuantizeBench [size [repetitions]]
+  */
+public class QuantizeBench {
+
+	public static void main(String args[]) {
+		int size = 1024, reps = 20;
+		if (args.length > 0) size = Integer.parseInt(args[0]);
+		if (args.length > 1) reps = Integer.parseInt(args[1]);
+
+		float src[] = new float[size*size];
+		float old[] = new float[size*size], now[] = new float[size*size];
+		java.util.Random r = new java.util.Random(size);
+		for (int i=0;i<src.length;i++) src[i]=(float)r.nextGaussian()*50f;
+
+		System.out.println(size+"x"+size+" subband");
+		System.out.println("lattice\tpath\tMB/s alloc\tB/lattice\tMPix/s");
+		int dims[][] = {{1,1},{2,2},{4,2},{4,4}};
+		for (int d=0; d<dims.length; d++) {
+			ParamLattice pml = new ParamLattice(ParamLattice.INTEGER,
+				dims[d][0],dims[d][1],8f);
+			long lattices = (long)size*size/pml.getSize()*reps;
+
+			// warm up both paths
+			for (int i=0;i<3;i++) {
+				allocating(pml,src,old,size);
+				pml.apply(src,now,0,0,1,1,size,size,size,size);
+			}
+
+			long a0 = allocated(), t0 = System.nanoTime();
+			for (int i=0;i<reps;i++) allocating(pml,src,old,size);
+			long a1 = allocated(), t1 = System.nanoTime();
+			for (int i=0;i<reps;i++)
+				pml.apply(src,now,0,0,1,1,size,size,size,size);
+			long a2 = allocated(), t2 = System.nanoTime();
+
+			String name = dims[d][0]+"x"+dims[d][1];
+			report(name+"\tbefore", a1-a0, t1-t0, lattices, (double)size*size*reps);
+			report(name+"\tafter", a2-a1, t2-t1, lattices, (double)size*size*reps);
+			if (!java.util.Arrays.equals(old,now))
+				System.out.println(name+"\tRESULTS DIFFER");
+		}
+	}
+
+	/** The quantization loop as it was, with two vectors per lattice */
+	static void allocating(ParamLattice pml, float src[], float dst[], int size) {
+		int lw = pml.getWidth(), lh = pml.getHeight();
+		for (int j=0;j<size;j+=lh)
+			for (int i=0;i<size;i+=lw) {
+				float[] v = new float[lw*lh];
+				int k=0;
+				for (int lj=0;lj<lh;lj++)
+					for (int li=0;li<lw;li++) v[k++]=src[(j+lj)*size+i+li];
+				float[] res = pml.apply(v);
+				k=0;
+				for (int lj=0;lj<lh;lj++)
+					for (int li=0;li<lw;li++) dst[(j+lj)*size+i+li]=res[k++];
+			}
+	}
+
+	/** Bytes allocated so far by this thread */
+	static long allocated() {
+		return ((com.sun.management.ThreadMXBean)ManagementFactory
+			.getThreadMXBean()).getThreadAllocatedBytes(
+			Thread.currentThread().getId());
+	}
+
+	static void report(String name, long bytes, long nanos, long lattices,
+			double pixels) {
+		double s = nanos/1e9;
+		System.out.println(name+"\t"+format(bytes/1e6/s)+"\t\t"+
+			format((double)bytes/lattices)+"\t\t"+format(pixels/1e6/s));
+	}
+
+	static String format(double d) {
+		return ""+Math.round(d*10)/10.0;
+	}
+}
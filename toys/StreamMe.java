@@ -0,0 +1,79 @@
+import java.io.*;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.renderable.*;
+import javax.media.jai.*;
+import javax.media.jai.registry.*;
+
+import hyper.QuantizerConfig;
+import hyper.dsp.*;
+import org.freehep.util.io.*;
+
+/**
+  * Line-based Wavelet Transform + Lattice Quantization + Labelling, keeping
+  * just a few lines in memory, for images larger than the heap.
+  * <p>Usage: java StreamMe image [config [algorism [klt]]]
+  * <br>      java StreamMe -d image.lstream [config]
+  * <p>With "klt" the bands are decorrelated first, and the basis is stored
+  * in the stream header.
+  * <p>The second form decodes to a raw 16 bits image, band interleaved by line.
+  */
+public class StreamMe {
+
+	// Register "KLT" operator and its RIF
+	static {
+     OperationRegistry registry =
+        JAI.getDefaultInstance().getOperationRegistry();
+	
+     registry.registerDescriptor(new KLTDescriptor());     
+     RenderedImageFactory kltRIF = new KLTRIF();
+     RIFRegistry.register(registry, "KLT", "ccd-hyper",kltRIF);
+   }
+
+	public static void main(String args[]) {
+		try {
+			boolean decode = args[0].equals("-d");
+			String file = decode ? args[1] : args[0];
+			int arg = decode ? 2 : 1;
+			String cfgFile = "quantizer1.xml";
+			if (args.length > arg) cfgFile = args[arg];
+			QuantizerConfig config = new QuantizerConfig(cfgFile);
+
+			if (decode) {
+				BitInputStream bis = new BitInputStream(
+					new BufferedInputStream(new FileInputStream(file)));
+				LatticeLineDecoder dec = new LatticeLineDecoder(bis, config.getConfig());
+				DataOutputStream dos = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file+".raw")));
+				LineIWavelet.inverse(dec, dec.getWidth(), dec.getHeight(),
+					dec.getNumBands(), dos, DataBuffer.TYPE_SHORT,
+					dec.getKind(), dec.getLevel(), dec.getBasis());
+				dos.close();
+				bis.close();
+				System.out.println("StreamMe: "+dec.getWidth()+"x"+dec.getHeight()+
+					"x"+dec.getNumBands()+" written to "+file+".raw");
+			} else {
+				String algorism = "haar";
+				if (args.length > 2) algorism = args[2];
+				int kind = GlobalWaveletOpImage.getKind(algorism);
+
+				PlanarImage pim = JAI.create("fileload",file);
+				int rawBits = LatticeLineCoder.rawBits(
+					pim.getSampleModel().getDataType());
+				SpectralBasis basis = null;
+				if (args.length > 3 && args[3].equals("klt")) {
+					basis = SpectralBasis.estimate(pim, 0);
+					pim = COps.klt(pim, basis, false);
+				}
+				LatticeLineCoder coder = new LatticeLineCoder(
+					new BufferedOutputStream(new FileOutputStream(file+".lstream")),
+					pim.getWidth(), pim.getHeight(), pim.getNumBands(),
+					kind, config.getLevel(), config.getConfig(), basis, rawBits);
+				LineWavelet.transform(pim, kind, config.getLevel(), coder);
+				coder.close();
+			}
+		} catch (Exception e) {
+			System.err.println("StreamMe: "+e);
+		}
+	}
+}
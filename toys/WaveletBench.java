@@ -0,0 +1,54 @@
+import hyper.dsp.WaveletLifting;
+
+/**
+  * Throughput of the vertical Haar pass versus tile width, walking one
+  * column at a time or sweeping blocks of adjacent columns.
+  * <p>Usage: java WaveletBench [height [repetitions]]
+  */
+public class WaveletBench {
+
+	static final int HAAR = WaveletLifting.HAAR;
+
+	public static void main(String args[]) {
+		int height = 1024, reps = 20;
+		if (args.length > 0) height = Integer.parseInt(args[0]);
+		if (args.length > 1) reps = Integer.parseInt(args[1]);
+
+		System.out.println("height = "+height+", block = "+
+			WaveletLifting.BLOCK_SAMPLES+" samples");
+		System.out.println("width\tcolumn MPix/s\tblocked MPix/s");
+		for (int width = 64; width <= 8192; width <<= 1) {
+			float[] data = new float[width*height];
+			java.util.Random r = new java.util.Random(width);
+			for (int i=0;i<data.length;i++) data[i]=r.nextInt(256);
+
+			// warm up both paths
+			for (int i=0;i<3;i++) {
+				columns(data,width,height);
+				WaveletLifting.forwardColumns(HAAR,data,0,1,width,width,height);
+			}
+
+			long t0 = System.nanoTime();
+			for (int i=0;i<reps;i++) columns(data,width,height);
+			long t1 = System.nanoTime();
+			for (int i=0;i<reps;i++)
+				WaveletLifting.forwardColumns(HAAR,data,0,1,width,width,height);
+			long t2 = System.nanoTime();
+
+			double mpix = (double)width*height*reps/1e6;
+			System.out.println(width+"\t"+format(mpix/((t1-t0)/1e9))+
+				"\t\t"+format(mpix/((t2-t1)/1e9)));
+		}
+	}
+
+	/** The vertical pass walking one column at a time */
+	static void columns(float[] data, int width, int height) {
+		float[] line = WaveletLifting.scratchLine(height);
+		for (int i=0;i<width;i++)
+			WaveletLifting.forwardLine(HAAR,data,i,width,data,i,width,height,line);
+	}
+
+	static String format(double d) {
+		return ""+Math.round(d*10)/10.0;
+	}
+}